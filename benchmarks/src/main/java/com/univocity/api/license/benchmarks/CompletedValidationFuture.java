@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.benchmarks;
+
+import com.univocity.api.license.*;
+
+import java.util.concurrent.*;
+
+/**
+ * A {@link LicenseValidationFuture} that is already completed, returned by {@link StubLicenseManager}.
+ */
+final class CompletedValidationFuture implements LicenseValidationFuture {
+
+	private final LicenseValidationResult offlineResult;
+	private final LicenseValidationResult remoteResult;
+
+	CompletedValidationFuture(LicenseValidationResult offlineResult, LicenseValidationResult remoteResult) {
+		this.offlineResult = offlineResult;
+		this.remoteResult = remoteResult;
+	}
+
+	@Override
+	public LicenseValidationResult getOfflineResult() {
+		return offlineResult;
+	}
+
+	@Override
+	public LicenseValidationResult getRemoteResult() {
+		return remoteResult;
+	}
+
+	@Override
+	public LicenseValidationFuture whenValidated(LicenseValidationAction action) {
+		action.licenseValidated(remoteResult);
+		return this;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		return true;
+	}
+
+	@Override
+	public LicenseValidationResult get() {
+		return remoteResult;
+	}
+
+	@Override
+	public LicenseValidationResult get(long timeout, TimeUnit unit) {
+		return remoteResult;
+	}
+}
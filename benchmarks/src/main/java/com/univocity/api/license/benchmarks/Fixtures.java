@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.benchmarks;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+import com.univocity.api.license.store.*;
+
+import java.util.*;
+
+/**
+ * Products and licenses shared by the benchmarks.
+ */
+final class Fixtures {
+
+	static final String PUBLIC_KEY = "MIIBIjANBgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEAw79NXCVvyDHiKxywfjtfrMxIVvVPNtbLP2HfD2cqpviGQfoCZWQI7mHIpZZwVs0Fm8To5ga2fMuLWiwz/tkc6TV5ZJ/C6aK2lUilOYZwmKDK5ADbEZhlNl2SScLnImIel9kID3ZN9OAuH2gAgsNNZadvAt+SK1M7AKdj4ryRpzlKYHfLdb/E084LoaY58JPdFfqtF0lnHOlJBYrmIOSWgzAVcVcJMql6MFrCN5uY+w+hSgrc8B8uvzEiFoCPLU5rNTn/zuq7kUu2zYI+LGrPF/lxqL5wiZ/SzJ6CjFevVtqdx6+tzfm40XB3gD8/5+9zjMhlGazNjsNm3bxPukaDXQIDAQAB";
+
+	private Fixtures() {
+	}
+
+	static Store store() {
+		return new Store(1L, "univocity", "localhost:8080");
+	}
+
+	static ProductVersion version() {
+		return new ProductVersion("2.4.1", "2017-03-05");
+	}
+
+	static Product product() {
+		return new Product(5L, "univocity-parsers", PUBLIC_KEY, new ProductVariant(2L, "enterprise"), version(), store());
+	}
+
+	static License license() {
+		return new BinaryLicense(BinaryLicense.encode(new StubLicense()));
+	}
+
+	private static final class StubLicense implements License {
+		private final Calendar releaseDate = new GregorianCalendar(2017, Calendar.MARCH, 5);
+		private final Calendar supportEndDate = new GregorianCalendar(2099, Calendar.DECEMBER, 31);
+
+		public String getStoreName() {
+			return "univocity";
+		}
+
+		public String getEmail() {
+			return "dev@univocity.com";
+		}
+
+		public String getFirstName() {
+			return "univocity";
+		}
+
+		public String getLastName() {
+			return "development team";
+		}
+
+		public String getSerialKey() {
+			return "ABCD-EFGH-IJKL-MNOP";
+		}
+
+		public boolean isTrial() {
+			return false;
+		}
+
+		public String getProductName() {
+			return "univocity-parsers";
+		}
+
+		public String getProductVersion() {
+			return "2.4.1";
+		}
+
+		public String getProductVariant() {
+			return "enterprise";
+		}
+
+		public Calendar getVersionReleaseDate() {
+			return releaseDate;
+		}
+
+		public Calendar getLicenseExpirationDate() {
+			return null;
+		}
+
+		public Calendar getSupportEndDate() {
+			return supportEndDate;
+		}
+
+		public int getVersionReleaseEpochDay() {
+			return EpochDays.of(releaseDate);
+		}
+
+		public int getLicenseExpirationEpochDay() {
+			return EpochDays.NONE;
+		}
+
+		public long getLicenseExpirationEpochMillis() {
+			return Long.MAX_VALUE;
+		}
+
+		public int getSupportEndEpochDay() {
+			return EpochDays.of(supportEndDate);
+		}
+
+		public String getVersionReleaseDate(String datePattern) {
+			return DateFormats.format(releaseDate, datePattern);
+		}
+
+		public String getLicenseExpirationDate(String datePattern) {
+			return null;
+		}
+
+		public String getSupportEndDate(String datePattern) {
+			return DateFormats.format(supportEndDate, datePattern);
+		}
+
+		public String getLicensePoolName() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.benchmarks;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.metrics.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Measures {@link LicenseManager#validate()} and {@link LicenseManager#getLicense()} against an offline
+ * {@link StubLicenseManager}, single-threaded and with all available processors contending for the same manager.
+ * The {@code WithListeners} benchmarks validate with 100 subscribed result-change listeners, none of which is notified
+ * as the result doesn't change. The {@code validateAsync} benchmarks run the synchronization in an executor given by
+ * the caller, which runs it in the calling thread so that only the cost of the future is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LicenseManagerBenchmark {
+
+	private LicenseManager cachedManager;
+	private LicenseManager uncachedManager;
+	private LicenseManager measuredManager;
+	private LicenseManager listenedManager;
+
+	private static final Executor CALLER_RUNS = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	@Setup
+	public void setup() {
+		cachedManager = new StubLicenseManager(Fixtures.product(), Fixtures.license());
+		uncachedManager = new StubLicenseManager(Fixtures.product(), Fixtures.license());
+		uncachedManager.setValidationCacheDuration(0, TimeUnit.MILLISECONDS);
+		measuredManager = new StubLicenseManager(Fixtures.product(), Fixtures.license());
+		measuredManager.setMetrics(new LicenseStatistics());
+		listenedManager = new StubLicenseManager(Fixtures.product(), Fixtures.license());
+		listenedManager.setValidationCacheDuration(0, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 100; i++) {
+			listenedManager.addResultChangeListener(new LicenseValidationAction() {
+				@Override
+				public void licenseValidated(LicenseValidationResult result) {
+				}
+			});
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public LicenseValidationResult validateCached() {
+		return cachedManager.validate();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public LicenseValidationResult validateCachedContended() {
+		return cachedManager.validate();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public LicenseValidationResult validateUncached() {
+		return uncachedManager.validate();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public LicenseValidationResult validateUncachedContended() {
+		return uncachedManager.validate();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public LicenseValidationResult validateWithMetrics() {
+		return measuredManager.validate();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public LicenseValidationResult validateWithMetricsContended() {
+		return measuredManager.validate();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public LicenseValidationResult validateUncachedWithListeners() {
+		return listenedManager.validate();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public LicenseValidationResult validateUncachedWithListenersContended() {
+		return listenedManager.validate();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public LicenseValidationResult validateAsyncCached() throws Exception {
+		return cachedManager.validateAsync(CALLER_RUNS).get();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public LicenseValidationResult validateAsyncUncached() throws Exception {
+		return uncachedManager.validateAsync(CALLER_RUNS).get();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public LicenseValidationResult validateAsyncUncachedContended() throws Exception {
+		return uncachedManager.validateAsync(CALLER_RUNS).get();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String getLicense() {
+		return cachedManager.getLicense().getSerialKey();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String getLicenseContended() {
+		return cachedManager.getLicense().getSerialKey();
+	}
+}
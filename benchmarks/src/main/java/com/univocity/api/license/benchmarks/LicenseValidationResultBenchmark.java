@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.benchmarks;
+
+import com.univocity.api.license.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Measures {@link LicenseValidationResult#fromCode(int)}, used to decode every result received from the license
+ * server, single-threaded and with all available processors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LicenseValidationResultBenchmark {
+
+	private int code;
+
+	@Benchmark
+	@Threads(1)
+	public LicenseValidationResult fromCode() {
+		code = (code + 1) % 15;
+		return LicenseValidationResult.fromCode(code);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public LicenseValidationResult fromCodeContended() {
+		code = (code + 1) % 15;
+		return LicenseValidationResult.fromCode(code);
+	}
+}
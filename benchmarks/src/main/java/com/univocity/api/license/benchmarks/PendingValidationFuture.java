@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.benchmarks;
+
+import com.univocity.api.license.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A {@link LicenseValidationFuture} completed by a synchronization submitted to an executor, returned by
+ * {@link StubLicenseManager} when the validation result is not cached.
+ */
+final class PendingValidationFuture extends FutureTask<LicenseValidationResult> implements LicenseValidationFuture {
+
+	private final LicenseValidationResult offlineResult;
+	private final Queue<LicenseValidationAction> actions = new ConcurrentLinkedQueue<LicenseValidationAction>();
+
+	PendingValidationFuture(LicenseValidationResult offlineResult, Callable<LicenseValidationResult> synchronization) {
+		super(synchronization);
+		this.offlineResult = offlineResult;
+	}
+
+	@Override
+	public LicenseValidationResult getOfflineResult() {
+		return offlineResult;
+	}
+
+	@Override
+	public LicenseValidationResult getRemoteResult() {
+		if (!isDone()) {
+			return null;
+		}
+		try {
+			return get();
+		} catch (Exception e) {
+			return LicenseValidationResult.ERROR;
+		}
+	}
+
+	@Override
+	public LicenseValidationFuture whenValidated(LicenseValidationAction action) {
+		actions.add(action);
+		if (isDone()) {
+			notifyActions();
+		}
+		return this;
+	}
+
+	@Override
+	protected void done() {
+		notifyActions();
+	}
+
+	private void notifyActions() {
+		LicenseValidationResult result = getRemoteResult();
+		LicenseValidationAction action;
+		while ((action = actions.poll()) != null) {
+			action.licenseValidated(result);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.benchmarks;
+
+import com.univocity.api.license.details.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Measures the construction of {@link Product} and {@link ProductVersion} instances, which includes parsing the
+ * release date of each version, single-threaded and with all available processors, as well as the cost of using
+ * products as map keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductBenchmark {
+
+	private Store store;
+	private ProductVariant variant;
+	private ProductVersion version;
+	private Product product;
+	private Product equalProduct;
+
+	@Setup
+	public void setup() {
+		store = Fixtures.store();
+		variant = new ProductVariant(2L, "enterprise");
+		version = Fixtures.version();
+		product = Fixtures.product();
+		equalProduct = Fixtures.product();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public ProductVersion newProductVersion() {
+		return new ProductVersion("2.4.1", "2017-03-05");
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public ProductVersion newProductVersionContended() {
+		return new ProductVersion("2.4.1", "2017-03-05");
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Product newProduct() {
+		return new Product(5L, "univocity-parsers", Fixtures.PUBLIC_KEY, variant, version, store);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Product newProductContended() {
+		return new Product(5L, "univocity-parsers", Fixtures.PUBLIC_KEY, variant, version, store);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public int productHashCode() {
+		return product.hashCode();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean productEquals() {
+		return product.equals(equalProduct);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Product productIntern() {
+		return equalProduct.intern();
+	}
+}
@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.benchmarks;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.concurrent.*;
+import com.univocity.api.license.details.*;
+import com.univocity.api.license.metrics.*;
+import com.univocity.api.license.pool.*;
+import com.univocity.api.license.remote.*;
+import com.univocity.api.license.store.*;
+
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * An offline {@link LicenseManager} that validates a fixed {@link License} locally and never contacts a license
+ * server. Used to measure the cost of the license validation paths without network access.
+ */
+public final class StubLicenseManager implements LicenseManager {
+
+	private final Product product;
+	private volatile License license;
+
+	private volatile long validationCacheDuration = TimeUnit.HOURS.toMillis(4);
+	private volatile long failureCacheDuration = TimeUnit.MINUTES.toMillis(5);
+
+	private volatile CachedResult cachedResult;
+	private volatile LicenseMetrics metrics = LicenseMetrics.DISABLED;
+	private volatile BackgroundRefresher refresher;
+	private final Lock refreshLock = new ReentrantLock();
+	private final Executor internalExecutor = newInternalExecutor();
+	private volatile Executor executor = internalExecutor;
+	private volatile CallbackDispatcher callbackDispatcher;
+	private final ResultChangeNotifier resultChangeNotifier = new ResultChangeNotifier();
+	private volatile RevocationList revocationList = RevocationList.EMPTY;
+	private final SeatPool seatPool = new SeatPool("stub", 1024);
+
+	private String licenseFilePath;
+	private LicenseStore licenseStore;
+	private Proxy proxy;
+	private String proxyHost;
+	private int proxyPort;
+	private String proxyUser;
+	private char[] proxyPassword;
+	private ConnectionSettings connectionSettings = ConnectionSettings.DEFAULT;
+	private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private String licenseAgreementText;
+	private String licenseAgreementHtml;
+
+	private static Executor newInternalExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), CallbackDispatcher.namedThreadFactory("stub-license-manager"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static final class CachedResult {
+		final LicenseValidationResult result;
+		final long expiration;
+
+		CachedResult(LicenseValidationResult result, long expiration) {
+			this.result = result;
+			this.expiration = expiration;
+		}
+	}
+
+	public StubLicenseManager(Product product, License license) {
+		this.product = product;
+		this.license = license;
+	}
+
+	LicenseValidationResult validateOffline() {
+		License license = this.license;
+		if (license == null) {
+			return LicenseValidationResult.NOT_FOUND;
+		}
+		if (revocationList.isRevoked(license.getSerialKey())) {
+			return LicenseValidationResult.DISABLED;
+		}
+		if (System.currentTimeMillis() > license.getLicenseExpirationEpochMillis()) {
+			return license.isTrial() ? LicenseValidationResult.TRIAL_EXPIRED : LicenseValidationResult.EXPIRED;
+		}
+		int supportEnd = license.getSupportEndEpochDay();
+		if (supportEnd != EpochDays.NONE && product.version().releaseEpochDay() > supportEnd) {
+			return LicenseValidationResult.SUPPORT_ENDED;
+		}
+		return LicenseValidationResult.VALID;
+	}
+
+	@Override
+	public LicenseValidationResult validate() {
+		LicenseMetrics metrics = this.metrics;
+		long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+
+		CachedResult cached = cachedResult;
+		long now = System.currentTimeMillis();
+		if (cached != null && now < cached.expiration) {
+			if (metrics.isEnabled()) {
+				metrics.operationCompleted(product, LicenseOperation.VALIDATE_CACHED, cached.result, System.nanoTime() - start);
+			}
+			return cached.result;
+		}
+		LicenseValidationResult result = validateOffline();
+		long duration = result == LicenseValidationResult.ERROR || result == LicenseValidationResult.UNKNOWN_HOST ? failureCacheDuration : validationCacheDuration;
+		cachedResult = new CachedResult(result, now + duration);
+		if (metrics.isEnabled()) {
+			metrics.operationCompleted(product, LicenseOperation.VALIDATE, result, System.nanoTime() - start);
+		}
+		return publish(result);
+	}
+
+	@Override
+	public void setMetrics(LicenseMetrics metrics) {
+		this.metrics = metrics == null ? LicenseMetrics.DISABLED : metrics;
+	}
+
+	@Override
+	public LicenseMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public LicenseValidationResult validate(final LicenseValidationAction licenseValidationAction) {
+		final LicenseValidationResult result = validate();
+		if (licenseValidationAction != null) {
+			CallbackDispatcher dispatcher = callbackDispatcher;
+			if (dispatcher != null) {
+				dispatcher.dispatch(licenseValidationAction, result);
+			} else {
+				getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						licenseValidationAction.licenseValidated(result);
+					}
+				});
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Map<Product, LicenseValidationResult> validateAll(Collection<Product> products) {
+		Map<Product, LicenseValidationResult> out = new LinkedHashMap<Product, LicenseValidationResult>();
+		List<Product> toSynchronize = new ArrayList<Product>();
+		for (Product p : products) {
+			StubLicenseManager manager = managerOf(p);
+			LicenseValidationResult result = manager == null ? LicenseValidationResult.NOT_FOUND : manager.cachedResult();
+			out.put(p, result);
+			if (result == null) {
+				toSynchronize.add(p);
+			}
+		}
+		if (!toSynchronize.isEmpty()) {
+			out.putAll(synchronize(toSynchronize));
+		}
+		return out;
+	}
+
+	@Override
+	public Map<Product, LicenseValidationResult> synchronize(Collection<Product> products) {
+		Map<Product, LicenseValidationResult> out = new LinkedHashMap<Product, LicenseValidationResult>();
+		for (Product p : products) {
+			StubLicenseManager manager = managerOf(p);
+			out.put(p, manager == null ? LicenseValidationResult.NOT_FOUND : manager.refresh());
+		}
+		return out;
+	}
+
+	private StubLicenseManager managerOf(Product p) {
+		if (p.equals(product)) {
+			return this;
+		}
+		LicenseManager manager = p.licenseManager();
+		return manager instanceof StubLicenseManager ? (StubLicenseManager) manager : null;
+	}
+
+	private LicenseValidationResult cachedResult() {
+		CachedResult cached = cachedResult;
+		return cached != null && System.currentTimeMillis() < cached.expiration ? cached.result : null;
+	}
+
+	private LicenseValidationResult refresh() {
+		LicenseValidationResult result = validateOffline();
+		cachedResult = new CachedResult(result, System.currentTimeMillis() + validationCacheDuration);
+		return publish(result);
+	}
+
+	@Override
+	public LicenseValidationFuture validateAsync(Executor executor) {
+		LicenseValidationResult cached = cachedResult();
+		if (cached != null) {
+			return new CompletedValidationFuture(cached, cached);
+		}
+		PendingValidationFuture future = new PendingValidationFuture(validateOffline(), new Callable<LicenseValidationResult>() {
+			@Override
+			public LicenseValidationResult call() {
+				return refresh();
+			}
+		});
+		executor.execute(future);
+		return future;
+	}
+
+	@Override
+	public LicenseValidationFuture validateAsync() {
+		return validateAsync(executor);
+	}
+
+	@Override
+	public void setExecutor(Executor executor) {
+		this.executor = executor == null ? internalExecutor : executor;
+	}
+
+	@Override
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	@Override
+	public void addResultChangeListener(LicenseValidationAction listener) {
+		resultChangeNotifier.subscribe(listener);
+	}
+
+	@Override
+	public boolean removeResultChangeListener(LicenseValidationAction listener) {
+		return resultChangeNotifier.unsubscribe(listener);
+	}
+
+	private LicenseValidationResult publish(LicenseValidationResult result) {
+		CallbackDispatcher dispatcher = callbackDispatcher;
+		if (dispatcher != null) {
+			resultChangeNotifier.publish(result, dispatcher);
+		} else {
+			resultChangeNotifier.publish(result, executor);
+		}
+		return result;
+	}
+
+	@Override
+	public void setCallbackDispatcher(CallbackDispatcher dispatcher) {
+		this.callbackDispatcher = dispatcher;
+	}
+
+	@Override
+	public CallbackDispatcher getCallbackDispatcher() {
+		return callbackDispatcher;
+	}
+
+	@Override
+	public void startBackgroundRefresh(ScheduledExecutorService executor, LicenseValidationAction changeListener) {
+		BackgroundRefresher refresher = new BackgroundRefresher(new Callable<LicenseValidationResult>() {
+			@Override
+			public LicenseValidationResult call() {
+				return refresh();
+			}
+		}, executor, Math.max(1L, validationCacheDuration), TimeUnit.MILLISECONDS, 0.25, changeListener);
+
+		refreshLock.lock();
+		try {
+			stopRefresher();
+			this.refresher = refresher;
+		} finally {
+			refreshLock.unlock();
+		}
+
+		// the license store is read without holding the lock
+		refresher.start(validate());
+		if (this.refresher != refresher) { // stopped or replaced while starting
+			refresher.stop();
+		}
+	}
+
+	@Override
+	public void stopBackgroundRefresh() {
+		refreshLock.lock();
+		try {
+			stopRefresher();
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	private void stopRefresher() {
+		BackgroundRefresher refresher = this.refresher;
+		if (refresher != null) {
+			refresher.stop();
+			this.refresher = null;
+			cachedResult = null;
+		}
+	}
+
+	@Override
+	public boolean isBackgroundRefreshEnabled() {
+		BackgroundRefresher refresher = this.refresher;
+		return refresher != null && refresher.isRunning();
+	}
+
+	@Override
+	public void setRevocationList(RevocationList revocationList) {
+		this.revocationList = revocationList == null ? RevocationList.EMPTY : revocationList;
+		cachedResult = null;
+	}
+
+	@Override
+	public RevocationList getRevocationList() {
+		return revocationList;
+	}
+
+	@Override
+	public SeatLease acquireSeat(long ttl, TimeUnit unit) {
+		return seatPool.acquire("stub-node", ttl, unit);
+	}
+
+	@Override
+	public SeatLease renewSeat(SeatLease lease, long ttl, TimeUnit unit) {
+		if (lease.leaseId() == null) {
+			return SeatLease.rejected(lease.poolName(), lease.nodeId(), LicenseValidationResult.NOT_FOUND);
+		}
+		return seatPool.renew(lease.leaseId(), ttl, unit);
+	}
+
+	@Override
+	public List<SeatLease> renewSeats(List<SeatLease> leases, long ttl, TimeUnit unit) {
+		List<SeatLease> out = new ArrayList<SeatLease>(leases.size());
+		for (SeatLease lease : leases) {
+			out.add(renewSeat(lease, ttl, unit));
+		}
+		return out;
+	}
+
+	@Override
+	public void releaseSeat(SeatLease lease) {
+		if (lease.leaseId() != null) {
+			seatPool.release(lease.leaseId());
+		}
+	}
+
+	@Override
+	public void setValidationCacheDuration(long duration, TimeUnit unit) {
+		validationCacheDuration = unit.toMillis(duration);
+	}
+
+	@Override
+	public long getValidationCacheDuration() {
+		return validationCacheDuration;
+	}
+
+	@Override
+	public void setFailureCacheDuration(long duration, TimeUnit unit) {
+		failureCacheDuration = unit.toMillis(duration);
+	}
+
+	@Override
+	public long getFailureCacheDuration() {
+		return failureCacheDuration;
+	}
+
+	@Override
+	public void clearValidationCache() {
+		cachedResult = null;
+	}
+
+	@Override
+	public String getLicenseFilePath() {
+		return licenseFilePath;
+	}
+
+	@Override
+	public boolean setLicenseFilePath(String licenseFilePath) {
+		this.licenseFilePath = licenseFilePath;
+		return true;
+	}
+
+	@Override
+	public void setLicenseStore(LicenseStore licenseStore) {
+		this.licenseStore = licenseStore;
+	}
+
+	@Override
+	public LicenseStore getLicenseStore() {
+		return licenseStore;
+	}
+
+	@Override
+	public License assignLicense(String email, String serialKey) throws LicenseRegistrationException {
+		return getLicense();
+	}
+
+	@Override
+	public License assignLicense(String email, String serialKey, String firstName, String lastName) throws LicenseRegistrationException {
+		return getLicense();
+	}
+
+	@Override
+	public License assignTrial(String email, String firstName, String lastName) throws LicenseRegistrationException {
+		return getLicense();
+	}
+
+	@Override
+	public License getLicense() {
+		return license;
+	}
+
+	@Override
+	public void deleteLicense() {
+		license = null;
+		cachedResult = null;
+	}
+
+	@Override
+	public void releaseLicense() throws LicenseRegistrationException {
+		deleteLicense();
+	}
+
+	@Override
+	public Product getProduct() {
+		return product;
+	}
+
+	@Override
+	public String getProductDescription() {
+		return product.toString();
+	}
+
+	@Override
+	public void setProxy(Proxy.Type proxyType, String proxyHost, int proxyPort, String user, char[] password) {
+		this.proxyHost = proxyHost;
+		this.proxyPort = proxyPort;
+		this.proxyUser = user;
+		this.proxyPassword = password == null ? null : password.clone();
+	}
+
+	@Override
+	public void setProxy(Proxy proxy, String user, char[] password) {
+		this.proxy = proxy;
+		this.proxyUser = user;
+		this.proxyPassword = password == null ? null : password.clone();
+	}
+
+	@Override
+	public void setProxy(Proxy.Type proxyType, String proxyHost, int proxyPort) {
+		this.proxyHost = proxyHost;
+		this.proxyPort = proxyPort;
+	}
+
+	@Override
+	public void setProxy(Proxy proxy) {
+		this.proxy = proxy;
+	}
+
+	@Override
+	public Proxy getProxy() {
+		return proxy;
+	}
+
+	@Override
+	public String getProxyHost() {
+		return proxyHost;
+	}
+
+	@Override
+	public int getProxyPort() {
+		return proxyPort;
+	}
+
+	@Override
+	public String getProxyUser() {
+		return proxyUser;
+	}
+
+	@Override
+	public char[] getProxyPassword() {
+		return proxyPassword;
+	}
+
+	@Override
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy == null ? RetryPolicy.DEFAULT : retryPolicy;
+	}
+
+	@Override
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	@Override
+	public void setConnectionSettings(ConnectionSettings connectionSettings) {
+		this.connectionSettings = connectionSettings == null ? ConnectionSettings.DEFAULT : connectionSettings;
+	}
+
+	@Override
+	public ConnectionSettings getConnectionSettings() {
+		return connectionSettings;
+	}
+
+	@Override
+	public void setLicenseAgreementText(String licenseAgreementText) {
+		this.licenseAgreementText = licenseAgreementText;
+	}
+
+	@Override
+	public void setLicenseAgreementHtml(String licenseAgreementHtml) {
+		this.licenseAgreementHtml = licenseAgreementHtml;
+	}
+
+	@Override
+	public String getLicenseAgreementText() {
+		return licenseAgreementText;
+	}
+
+	@Override
+	public String getLicenseAgreementHtml() {
+		return licenseAgreementHtml;
+	}
+
+	@Override
+	public String getLicenseAgreement() {
+		return licenseAgreementHtml != null ? licenseAgreementHtml : licenseAgreementText;
+	}
+
+	@Override
+	public void startCmd() {
+	}
+}
@@ -7,6 +7,8 @@
 
 package com.univocity.api.license;
 
+import com.univocity.api.license.details.*;
+
 import java.util.*;
 
 /**
@@ -101,6 +103,44 @@ public interface License {
 	 */
 	Calendar getSupportEndDate();
 
+	/**
+	 * Date the current product version was released, as an epoch day. Unlike {@link #getVersionReleaseDate()},
+	 * this method doesn't allocate any objects.
+	 *
+	 * @return the number of days elapsed from {@code 1970-01-01} until the release date of this particular
+	 * product version.
+	 */
+	int getVersionReleaseEpochDay();
+
+	/**
+	 * The license expiration date, as an epoch day. Unlike {@link #getLicenseExpirationDate()}, this method
+	 * doesn't allocate any objects.
+	 *
+	 * @return the number of days elapsed from {@code 1970-01-01} until the license expiration date, or
+	 * {@link EpochDays#NONE} if the license doesn't expire.
+	 */
+	int getLicenseExpirationEpochDay();
+
+	/**
+	 * The last instant of the license expiration date in the default time zone, in milliseconds since the epoch.
+	 * The license remains valid during the whole expiration date, so it has expired when
+	 * {@link System#currentTimeMillis()} is greater than the returned value.
+	 *
+	 * @return the last millisecond of the license expiration date, or {@link Long#MAX_VALUE} if the license
+	 * doesn't expire.
+	 */
+	long getLicenseExpirationEpochMillis();
+
+	/**
+	 * The support end date, as an epoch day. The license won't work with product versions whose
+	 * {@link ProductVersion#releaseEpochDay()} is after this date. Unlike {@link #getSupportEndDate()}, this method
+	 * doesn't allocate any objects.
+	 *
+	 * @return the number of days elapsed from {@code 1970-01-01} until the support end date, or
+	 * {@link EpochDays#NONE} if no support end date is defined.
+	 */
+	int getSupportEndEpochDay();
+
 	/**
 	 * An {@code String} representation of this license.
 	 *
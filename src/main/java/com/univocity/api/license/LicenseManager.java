@@ -7,10 +7,16 @@
 
 package com.univocity.api.license;
 
+import com.univocity.api.license.concurrent.*;
 import com.univocity.api.license.details.*;
+import com.univocity.api.license.metrics.*;
+import com.univocity.api.license.pool.*;
+import com.univocity.api.license.remote.*;
+import com.univocity.api.license.store.*;
+import com.univocity.api.license.ui.*;
 
-import java.awt.*;
 import java.net.*;
+import java.util.*;
 import java.util.concurrent.*;
 
 /**
@@ -19,6 +25,9 @@ import java.util.concurrent.*;
  * Licenses can be individual to a computer and therefore stored locally in a operating-system dependent fashion
  * (for individual users), or grouped together in a single license file containing multiple license entries
  * (for multiple servers where individual license management would be painful).
+ *
+ * This interface never references AWT classes, so it can be used on headless servers and command-line tools
+ * without loading them. The graphical license management interface is provided by {@link GuiLicenseManager}.
  */
 public interface LicenseManager {
 
@@ -63,6 +72,28 @@ public interface LicenseManager {
 	 */
 	boolean setLicenseFilePath(String licenseFilePath);
 
+	/**
+	 * Defines a custom {@link LicenseStore} to hold the local copy of the license, replacing the license file
+	 * given by {@link #getLicenseFilePath()}. The store will only be used if a license can't be found on the
+	 * operating-system store.
+	 *
+	 * Use a {@link MappedLicenseFile} to share a single license file among many processes running in the same host.
+	 * Its content is read without locking and only parsed again by this license manager when
+	 * {@link LicenseStore#version()} changes.
+	 *
+	 * @param licenseStore the store of the local license copy, or {@code null} to use the file given by
+	 *                     {@link #getLicenseFilePath()}.
+	 */
+	void setLicenseStore(LicenseStore licenseStore);
+
+	/**
+	 * Returns the custom {@link LicenseStore} used to hold the local copy of the license, if any.
+	 *
+	 * @return the store of the local license copy, or {@code null} if the file given by {@link #getLicenseFilePath()}
+	 * is used.
+	 */
+	LicenseStore getLicenseStore();
+
 	/**
 	 * Assigns a license for this product to a user. The information provided in the parameters and the hardware
 	 * identity will be sent to the license server to generate a {@link License} object. If the information provided
@@ -151,14 +182,20 @@ public interface LicenseManager {
 	 *
 	 * <strong>NOTE:</strong> this will return immediately for a quick initial validation based on the license stored
 	 * locally, but it will also synchronize the local license with the license server in a separate process.
-	 * The remote validation result is cached locally and in the server for a few hours. Subsequent calls to this method
-	 * will produce the previous validation result immediately.
+	 * The validation result is cached in memory for the duration given by {@link #getValidationCacheDuration()}
+	 * (or {@link #getFailureCacheDuration()} if the remote validation failed), and in the server for a few hours.
+	 * Subsequent calls to this method will produce the previous validation result immediately, without reading the
+	 * local license store or contacting the license server.
 	 *
 	 * The remote synchronization and validation uses the server provided by {@link Store#licenseServerDomain()})
 	 * and is potentially slow. If any changes have been applied to the license (revoke, renewal, etc) the locally stored
 	 * license will be updated accordingly, and if the online validation result is different from the initial offline
 	 * validation, the {@link LicenseValidationAction} provided as a parameter to this method will be called.
 	 *
+	 * Concurrent calls to this method are coalesced: threads validating the same product at the same time share a
+	 * single read of the local license store and a single remote synchronization (see {@link SingleFlight}).
+	 * Every {@link LicenseValidationAction} provided is still notified exactly once.
+	 *
 	 * @param licenseValidationAction action to be performed once the remote license validation completed. A
 	 *                                {@link LicenseValidationResult} will be sent to the caller via
 	 *                                {@link LicenseValidationAction#licenseValidated(LicenseValidationResult)}.
@@ -177,8 +214,10 @@ public interface LicenseManager {
 	 *
 	 * <strong>NOTE:</strong> this will return immediately for a quick initial validation based on the license stored
 	 * locally, but it will also synchronize the local license with the license server in a separate process.
-	 * The remote validation result is cached locally and in the server for a few hours. Subsequent calls to this method
-	 * will produce the previous validation result immediately.
+	 * The validation result is cached in memory for the duration given by {@link #getValidationCacheDuration()}
+	 * (or {@link #getFailureCacheDuration()} if the remote validation failed), and in the server for a few hours.
+	 * Subsequent calls to this method will produce the previous validation result immediately, without reading the
+	 * local license store or contacting the license server.
 	 *
 	 * The remote synchronization and validation uses the server provided by {@link Store#licenseServerDomain()})
 	 * and is potentially slow. If any changes have been applied to the license (revoke, renewal, etc) the locally stored
@@ -191,6 +230,310 @@ public interface LicenseManager {
 	 */
 	LicenseValidationResult validate();
 
+	/**
+	 * Validates the licenses of multiple products at once, including the product managed by this license manager if
+	 * it is part of the given collection. Each product is validated offline by its own license manager, as in
+	 * {@link #validate()}, with its own public key and local license store, and cached results (see
+	 * {@link #getValidationCacheDuration()}) are returned directly for products whose license has been validated
+	 * recently.
+	 *
+	 * Products whose license must be synchronized with the license server are not synchronized one by one: they are
+	 * sent together in a single call to {@link #synchronize(Collection)} on this license manager, i.e. in one
+	 * {@link HeartbeatRequest} per license server, using the proxy and connection settings of this license manager.
+	 * The response for each product is still verified with the public key of that product. Use
+	 * {@link Product#validateAll(Collection)} to group products by license server domain, proxy and connection
+	 * settings automatically.
+	 *
+	 * @param products the products whose licenses should be validated.
+	 *
+	 * @return a map of each given product to the result of its offline license validation, in the same iteration
+	 * order as the given collection.
+	 */
+	Map<Product, LicenseValidationResult> validateAll(Collection<Product> products);
+
+	/**
+	 * Validates the licenses of many products against the license server, sending a single {@link HeartbeatRequest}
+	 * with the serial keys of all licenses that share the same license server (see {@link Store#licenseServerDomain()})
+	 * instead of one request per license. Products without a license are reported as
+	 * {@link LicenseValidationResult#NOT_FOUND} and not sent to the license server.
+	 *
+	 * The result of each product is cached by its license manager as if {@link #validate()} had synchronized it.
+	 *
+	 * <strong>NOTE:</strong> this method blocks until all license servers respond.
+	 *
+	 * @param products the products whose licenses should be validated.
+	 *
+	 * @return a map of each given product to the result of its remote license validation, in the same iteration
+	 * order as the given collection.
+	 */
+	Map<Product, LicenseValidationResult> synchronize(Collection<Product> products);
+
+	/**
+	 * Starts synchronizing the license with the license server periodically in the background, so that the
+	 * cached validation result is refreshed before it expires (see {@link #getValidationCacheDuration()}). Refreshes
+	 * are scheduled with jitter in the given executor by a {@link BackgroundRefresher}.
+	 *
+	 * While the background refresh is enabled, calls to {@link #validate()} and
+	 * {@link #validate(LicenseValidationAction)} never trigger a remote synchronization and always return the
+	 * latest result produced by the background refresh.
+	 *
+	 * @param executor       the executor that will run the background synchronization.
+	 * @param changeListener an action to notify when the result of a background synchronization differs from the
+	 *                       previous result (e.g. the license changed from {@link LicenseValidationResult#VALID} to
+	 *                       {@link LicenseValidationResult#EXPIRED} or {@link LicenseValidationResult#DISABLED}).
+	 *                       Can be {@code null}.
+	 */
+	void startBackgroundRefresh(ScheduledExecutorService executor, LicenseValidationAction changeListener);
+
+	/**
+	 * Stops the background refresh started with {@link #startBackgroundRefresh(ScheduledExecutorService, LicenseValidationAction)}.
+	 * Subsequent validations will synchronize the license with the license server once the cached result expires.
+	 */
+	void stopBackgroundRefresh();
+
+	/**
+	 * Indicates whether the license is being synchronized with the license server in the background.
+	 *
+	 * @return {@code true} if {@link #startBackgroundRefresh(ScheduledExecutorService, LicenseValidationAction)} has been
+	 * called and the refresh has not been stopped.
+	 */
+	boolean isBackgroundRefreshEnabled();
+
+	/**
+	 * Defines the list of revoked serial keys used to reject revoked licenses offline. When the serial key of the
+	 * current license (see {@link License#getSerialKey()}) is in the given list, {@link #validate()} and
+	 * {@link #validate(LicenseValidationAction)} return {@link LicenseValidationResult#DISABLED} without contacting
+	 * the license server.
+	 *
+	 * The license manager replaces this list with the latest one published by the license server on every remote
+	 * synchronization, so revoked keys are blocked across all processes as soon as they synchronize once.
+	 * Any cached validation result is discarded when a new list is provided.
+	 *
+	 * @param revocationList the revocation list, loaded with {@link RevocationList#load(java.nio.ByteBuffer, SignatureVerifier)},
+	 *                       or {@code null} to use {@link RevocationList#EMPTY}.
+	 */
+	void setRevocationList(RevocationList revocationList);
+
+	/**
+	 * Returns the list of revoked serial keys used to reject revoked licenses offline.
+	 *
+	 * @return the current revocation list, never {@code null}.
+	 */
+	RevocationList getRevocationList();
+
+	/**
+	 * Leases a seat from the floating license pool of the current license (see {@link License#getLicensePoolName()}).
+	 * The seat is held by this node for the given time, and must be renewed with
+	 * {@link #renewSeat(SeatLease, long, TimeUnit)} before it expires. Seats of nodes that stop renewing their leases,
+	 * e.g. because they crashed, are reclaimed by the license server once the leases expire.
+	 *
+	 * @param ttl  the time the seat will be held if not renewed. Shorter durations reclaim seats of crashed nodes
+	 *             faster, at the cost of more frequent renewals.
+	 * @param unit the time unit of the ttl
+	 *
+	 * @return the lease, with result {@link LicenseValidationResult#VALID} if a seat was leased,
+	 * {@link LicenseValidationResult#NO_MORE_LICENSES} if all seats of the pool are in use, or
+	 * {@link LicenseValidationResult#NOT_FOUND} if there is no license, or the license doesn't belong to a pool.
+	 */
+	SeatLease acquireSeat(long ttl, TimeUnit unit);
+
+	/**
+	 * Extends a seat lease obtained with {@link #acquireSeat(long, TimeUnit)}.
+	 *
+	 * @param lease the lease to renew
+	 * @param ttl   the time the seat will be held from now if not renewed again
+	 * @param unit  the time unit of the ttl
+	 *
+	 * @return the renewed lease, with result {@link LicenseValidationResult#VALID}, or a lease with result
+	 * {@link LicenseValidationResult#NOT_FOUND} if the given lease expired or was released, in which case a new
+	 * seat must be acquired.
+	 */
+	SeatLease renewSeat(SeatLease lease, long ttl, TimeUnit unit);
+
+	/**
+	 * Extends many seat leases at once, sending a single {@link HeartbeatRequest} to the license server instead of
+	 * one request per lease.
+	 *
+	 * @param leases the leases to renew
+	 * @param ttl    the time the seats will be held from now if not renewed again
+	 * @param unit   the time unit of the ttl
+	 *
+	 * @return the renewed leases, in the same order as the given leases. Each one has the result
+	 * {@link LicenseValidationResult#VALID} if it was renewed, or {@link LicenseValidationResult#NOT_FOUND} if it
+	 * expired or was released.
+	 */
+	List<SeatLease> renewSeats(List<SeatLease> leases, long ttl, TimeUnit unit);
+
+	/**
+	 * Releases a seat lease, making its seat immediately available to other nodes. Does nothing if the lease
+	 * expired or was already released.
+	 *
+	 * @param lease the lease to release
+	 */
+	void releaseSeat(SeatLease lease);
+
+	/**
+	 * Defines for how long a successful validation result is kept in memory. While cached, calls to
+	 * {@link #validate()} and {@link #validate(LicenseValidationAction)} return the cached result without reading the
+	 * local license store or contacting the license server, and reading the cached result requires no locking.
+	 *
+	 * A "successful" validation is any validation where the license server produced a definitive answer, i.e.
+	 * any {@link LicenseValidationResult} other than {@link LicenseValidationResult#ERROR} and
+	 * {@link LicenseValidationResult#UNKNOWN_HOST}.
+	 *
+	 * Calling {@link #assignLicense(String, String)}, {@link #assignTrial(String, String, String)},
+	 * {@link #releaseLicense()} or {@link #deleteLicense()} discards the cached result.
+	 *
+	 * @param duration the maximum time a validation result will be cached. Use {@code 0} to disable caching.
+	 * @param unit     the time unit of the given duration.
+	 */
+	void setValidationCacheDuration(long duration, TimeUnit unit);
+
+	/**
+	 * Returns for how long a successful validation result is kept in memory. Refer to
+	 * {@link #setValidationCacheDuration(long, TimeUnit)} for details.
+	 *
+	 * @return the validation cache duration, in milliseconds.
+	 */
+	long getValidationCacheDuration();
+
+	/**
+	 * Defines for how long a failed validation result, i.e. {@link LicenseValidationResult#ERROR} or
+	 * {@link LicenseValidationResult#UNKNOWN_HOST}, is kept in memory. This is typically shorter than the
+	 * duration given by {@link #getValidationCacheDuration()} so that transient failures are retried sooner,
+	 * while still preventing every call to {@link #validate()} from hitting the license store and server
+	 * while they are unavailable.
+	 *
+	 * @param duration the maximum time a failed validation result will be cached. Use {@code 0} to disable caching
+	 *                 of failures.
+	 * @param unit     the time unit of the given duration.
+	 */
+	void setFailureCacheDuration(long duration, TimeUnit unit);
+
+	/**
+	 * Returns for how long a failed validation result is kept in memory. Refer to
+	 * {@link #setFailureCacheDuration(long, TimeUnit)} for details.
+	 *
+	 * @return the failure cache duration, in milliseconds.
+	 */
+	long getFailureCacheDuration();
+
+	/**
+	 * Discards any validation result cached in memory, forcing the next call to {@link #validate()} to read the
+	 * local license store again and synchronize it with the license server.
+	 */
+	void clearValidationCache();
+
+	/**
+	 * Validates the local license currently associated with the product (via {@link #getLicense()}) and
+	 * synchronizes it with the license server asynchronously, in the same way as {@link #validate(LicenseValidationAction)}.
+	 *
+	 * The offline validation result is available immediately via {@link LicenseValidationFuture#getOfflineResult()}.
+	 * The remote synchronization runs in the given {@link Executor}, and the returned {@link LicenseValidationFuture}
+	 * completes with the result produced by the license server. Use {@link Future#get(long, TimeUnit)} to wait for the
+	 * remote result with a timeout, or {@link LicenseValidationFuture#whenValidated(LicenseValidationAction)} to be
+	 * notified without blocking.
+	 *
+	 * If the remote validation result is still cached (see {@link #validate()}), the returned future is already
+	 * completed and no task is submitted to the executor.
+	 *
+	 * @param executor the executor that will run the remote synchronization and notify any actions registered
+	 *                 in the returned future.
+	 *
+	 * @return a future holding the offline validation result, which completes with the remote validation result.
+	 */
+	LicenseValidationFuture validateAsync(Executor executor);
+
+	/**
+	 * Validates the local license currently associated with the product (via {@link #getLicense()}) and
+	 * synchronizes it with the license server asynchronously, using the executor given by {@link #getExecutor()}.
+	 * This is the same as {@code validateAsync(getExecutor())}.
+	 *
+	 * @return a future holding the offline validation result, which completes with the remote validation result.
+	 */
+	LicenseValidationFuture validateAsync();
+
+	/**
+	 * Defines the executor that runs remote synchronizations started by {@link #validate()},
+	 * {@link #validate(LicenseValidationAction)} and {@link #validateAsync()}, and notifies the given
+	 * {@link LicenseValidationAction}s unless a {@link CallbackDispatcher} is defined. By default, a single internal
+	 * daemon thread of this license manager is used.
+	 *
+	 * The license client never holds a monitor ({@code synchronized} block) while reading the local license store,
+	 * communicating with the license server or running callbacks; it only uses {@link java.util.concurrent.locks}
+	 * and atomic operations. On Java 21 or later, a virtual-thread-per-task executor can be provided here, so that
+	 * thousands of concurrent validations block only virtual threads and never pin carrier threads.
+	 *
+	 * @param executor the executor to use, or {@code null} to use the internal thread of this license manager.
+	 */
+	void setExecutor(Executor executor);
+
+	/**
+	 * Returns the executor that runs remote synchronizations and notifies {@link LicenseValidationAction}s.
+	 *
+	 * @return the executor defined with {@link #setExecutor(Executor)}, or the internal executor of this license
+	 * manager.
+	 */
+	Executor getExecutor();
+
+	/**
+	 * Defines a dedicated {@link CallbackDispatcher} to notify {@link LicenseValidationAction}s, instead of the
+	 * executor given by {@link #getExecutor()}. With a dispatcher, callbacks never run in the thread that called
+	 * {@link #validate(LicenseValidationAction)}, even if the result was cached, and all actions waiting for the
+	 * result of the same synchronization are notified as a single batch.
+	 *
+	 * @param dispatcher the dispatcher of callbacks, or {@code null} to notify actions with {@link #getExecutor()}.
+	 */
+	void setCallbackDispatcher(CallbackDispatcher dispatcher);
+
+	/**
+	 * Returns the dedicated {@link CallbackDispatcher} used to notify {@link LicenseValidationAction}s, if any.
+	 *
+	 * @return the callback dispatcher, or {@code null} if actions are notified with {@link #getExecutor()}.
+	 */
+	CallbackDispatcher getCallbackDispatcher();
+
+	/**
+	 * Subscribes a listener to be notified whenever the {@link LicenseValidationResult} of this product changes,
+	 * e.g. from {@link LicenseValidationResult#VALID} to {@link LicenseValidationResult#EXPIRED}, whether the new
+	 * result was produced by {@link #validate()}, a remote synchronization or a background refresh. The first result
+	 * produced after the listener is subscribed is also notified if no result was produced before.
+	 *
+	 * Use this instead of passing a new {@link LicenseValidationAction} to {@link #validate(LicenseValidationAction)}
+	 * on every call: listeners are kept in a copy-on-write list (see {@link ResultChangeNotifier}), so calls to
+	 * {@link #validate()} that don't change the result only perform a plain read. Listeners run in the
+	 * {@link #getCallbackDispatcher()}, if any, or in the {@link #getExecutor()}.
+	 *
+	 * @param listener the listener to notify of result changes.
+	 */
+	void addResultChangeListener(LicenseValidationAction listener);
+
+	/**
+	 * Unsubscribes a listener added with {@link #addResultChangeListener(LicenseValidationAction)}.
+	 *
+	 * @param listener the listener to remove
+	 *
+	 * @return {@code true} if the listener was subscribed, otherwise {@code false}.
+	 */
+	boolean removeResultChangeListener(LicenseValidationAction listener);
+
+	/**
+	 * Defines the {@link LicenseMetrics} to be notified of the outcome and duration of each
+	 * {@link LicenseOperation} performed by this license manager: validations answered from the cache or from the
+	 * local license store, remote synchronizations, license and trial assignments, and license releases.
+	 *
+	 * By default, {@link LicenseMetrics#DISABLED} is used and no measurements are taken.
+	 *
+	 * @param metrics the metrics collector to use, or {@code null} to disable metrics.
+	 */
+	void setMetrics(LicenseMetrics metrics);
+
+	/**
+	 * Returns the {@link LicenseMetrics} notified of the operations performed by this license manager.
+	 *
+	 * @return the current metrics collector. Never {@code null}.
+	 */
+	LicenseMetrics getMetrics();
 
 	/**
 	 * Deletes the license information stored locally, forcing the user to register the license again.
@@ -224,6 +567,28 @@ public interface LicenseManager {
 	 */
 	String getProductDescription();
 
+	/**
+	 * Defines how failed requests to the license server are retried. Retries are delayed using jittered
+	 * exponential backoff, and are not attempted while the {@link CircuitBreaker} of the license server domain
+	 * (see {@link CircuitBreaker#forDomain(String)}) is open.
+	 *
+	 * At most one remote synchronization is in flight per product at any time. Calls to
+	 * {@link #validate(LicenseValidationAction)} made while a synchronization is running (or while it waits
+	 * between retries) share that synchronization instead of starting another one, and each of their
+	 * {@link LicenseValidationAction}s is notified once the shared synchronization completes. If the circuit
+	 * breaker is open, the synchronization is skipped and the cached or offline result is kept.
+	 *
+	 * @param retryPolicy the retry policy to use, or {@code null} to use {@link RetryPolicy#DEFAULT}.
+	 */
+	void setRetryPolicy(RetryPolicy retryPolicy);
+
+	/**
+	 * Returns the policy that defines how failed requests to the license server are retried.
+	 *
+	 * @return the current retry policy. Never {@code null}.
+	 */
+	RetryPolicy getRetryPolicy();
+
 	/**
 	 * Configures the license manager to connect to the license server through a proxy, with authentication.
 	 *
@@ -295,6 +660,24 @@ public interface LicenseManager {
 	 */
 	char[] getProxyPassword();
 
+	/**
+	 * Configures the persistent connections used to communicate with the license server. Connections are
+	 * kept alive and reused, and are shared by all license managers that connect to the same
+	 * {@link Store#licenseServerDomain()} through the same proxy (see {@link #setProxy(Proxy, String, char[])})
+	 * with equal {@link ConnectionSettings}, so proxy authentication happens once per connection rather than
+	 * once per request.
+	 *
+	 * @param connectionSettings the connection settings to use, or {@code null} to use {@link ConnectionSettings#DEFAULT}.
+	 */
+	void setConnectionSettings(ConnectionSettings connectionSettings);
+
+	/**
+	 * Returns the settings of the persistent connections used to communicate with the license server.
+	 *
+	 * @return the current connection settings. Never {@code null}.
+	 */
+	ConnectionSettings getConnectionSettings();
+
 	/**
 	 * Defines the license agreement terms of your product in plain text (optional). Useful for command-line license
 	 * activation.
@@ -351,54 +734,9 @@ public interface LicenseManager {
 	 */
 	String getLicenseAgreement();
 
-	/**
-	 * Starts the appropriate license management user interface based on the user's graphics environment. Essentially, if
-	 * {@link GraphicsEnvironment#isHeadless()} evaluates to {@code true} the command line interface will be started
-	 * (same as {@link #startCmd()}); otherwise the license manager dialog will be displayed (same as {@link #startGui()})
-	 */
-	void start();
-
-	/**
-	 * Displays a license management window to allow users request an evaluation license, activate/deactivate their
-	 * purchased license and configure a proxy to be able to access the license server if required.
-	 */
-	void startGui();
-
 	/**
 	 * Displays a license management command-line interface to allow users request an evaluation license,
 	 * activate/deactivate their purchased license and configure a proxy to be able to access the license server if required.
 	 */
 	void startCmd();
-
-	/**
-	 * Defines an icon image to be used on the windows and dialogs displayed to the user when
-	 * {@link #startGui()} is called.
-	 *
-	 * @param icon an icon for the license management UI
-	 */
-	void setIcon(Image icon);
-
-	/**
-	 * Defines a logo to be displayed at the top of the license management window displayed when {@link #startGui()}}
-	 * is called.
-	 *
-	 * @param logo a logo for the license management UI
-	 */
-	void setLogo(Image logo);
-
-	/**
-	 * Returns the icon image to be used on the windows and dialogs displayed to the user when
-	 * {@link #startGui()} is called.
-	 *
-	 * @return an icon for the license management UI
-	 */
-	Image getIcon();
-
-	/**
-	 * Returns the logo to be displayed at the top of the license management window displayed when {@link #startGui()}}
-	 * is called.
-	 *
-	 * @return the logo to be displayed by the license management UI
-	 */
-	Image getLogo();
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license;
+
+import com.univocity.api.license.details.*;
+
+/**
+ * Creates {@link LicenseManager} instances without reflection.
+ *
+ * Providers are discovered with {@link java.util.ServiceLoader}, through a
+ * {@code META-INF/services/com.univocity.api.license.LicenseManagerProvider} file visible to the class loader of this
+ * API or to the context class loader of the thread that requests the license manager, or registered explicitly with
+ * {@link Product#registerLicenseManagerProvider(LicenseManagerProvider)}. When no provider creates a license manager
+ * for a product, {@link Product#licenseManager()} falls back to building the license manager reflectively with
+ * {@link com.univocity.api.Builder}.
+ *
+ * Static discovery keeps the license manager implementation reachable by closed-world analysis, e.g. when building
+ * GraalVM native images, and avoids the reflective lookup when starting with class data sharing (AppCDS).
+ */
+public interface LicenseManagerProvider {
+
+	/**
+	 * Creates the license manager of a product. Called once for each distinct product state (class, ID, name, public
+	 * key, variant, version with its release date, and store with its license server domain), and again only if the
+	 * license manager previously created for that state was garbage collected. Implementations must not call
+	 * {@link Product#licenseManager()} on the given product, which fails with an {@link IllegalStateException}.
+	 *
+	 * @param product the product whose license manager is required.
+	 *
+	 * @return a new license manager for the given product, or {@code null} if this provider doesn't handle it.
+	 */
+	LicenseManager newLicenseManager(Product product);
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license;
+
+import java.util.concurrent.*;
+
+/**
+ * The pending result of an asynchronous license validation started with {@link LicenseManager#validateAsync()} or
+ * {@link LicenseManager#validateAsync(Executor)}.
+ *
+ * The offline validation result is available immediately through {@link #getOfflineResult()}. The result of the
+ * remote validation is produced by this {@link Future} once the license server responds, so callers can wait for it
+ * with a timeout using {@link #get(long, TimeUnit)}, or register actions to be notified when it becomes available.
+ *
+ * If the remote validation fails due to a connectivity problem, the future completes normally with
+ * {@link LicenseValidationResult#ERROR}. {@link #get()} only throws an {@link ExecutionException} on unexpected
+ * internal errors.
+ */
+public interface LicenseValidationFuture extends Future<LicenseValidationResult> {
+
+	/**
+	 * Returns the result of the offline license validation, i.e. the same result that would be returned by
+	 * {@link LicenseManager#validate()}. This method never blocks.
+	 *
+	 * @return the result of the validation performed against the license stored locally.
+	 */
+	LicenseValidationResult getOfflineResult();
+
+	/**
+	 * Returns the result of the remote license validation if it already completed, without blocking.
+	 *
+	 * @return the result produced by the license server, or {@code null} if the remote validation is still running
+	 * or has been cancelled.
+	 */
+	LicenseValidationResult getRemoteResult();
+
+	/**
+	 * Registers an action to be performed once the remote validation completes. Unlike
+	 * {@link LicenseManager#validate(LicenseValidationAction)}, the action is always notified, even if the remote
+	 * result is the same as the offline result. If the remote validation already completed, the action will be
+	 * notified immediately.
+	 *
+	 * The action will be invoked by a thread of the {@link Executor} used to start the validation.
+	 *
+	 * @param action the action to be notified with the result of the remote validation.
+	 *
+	 * @return this future, to allow chaining multiple actions.
+	 */
+	LicenseValidationFuture whenValidated(LicenseValidationAction action);
+}
@@ -21,13 +21,13 @@ public enum LicenseValidationResult {
 	INCOMPLETE(1, "Incomplete"),
 	/**
 	 * The license has expired, i.e. {@link License#getLicenseExpirationDate()} is not {@code null} and the current date
-	 * is after the expiration date.
+	 * is after the expiration date. Evaluated with {@link License#getLicenseExpirationEpochDay()}.
 	 */
 	EXPIRED(2, "Expired"),
 	/**
 	 * The current version of the software being used is not supported by the current license, i.e.
 	 * {@link License#getSupportEndDate()} is not {@code null} and {@link ProductVersion#releaseDate()} is after the
-	 * support end date.
+	 * support end date. Evaluated with {@link License#getSupportEndEpochDay()} and {@link ProductVersion#releaseEpochDay()}.
 	 */
 	SUPPORT_ENDED(3, "Support ended"),
 
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.details.*;
+
+import java.nio.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * A signed list of revoked license serial keys, used to reject revoked licenses offline, without waiting for a
+ * remote synchronization with the license server.
+ *
+ * Serial keys are not stored: the list holds a sorted array of 64-bit hashes of the revoked keys, and a Bloom filter
+ * built from these hashes when the list is loaded. Most lookups of keys that are not revoked are answered by the Bloom
+ * filter alone, and the remaining ones by a binary search in the sorted array. Each revoked key takes 8 bytes for its
+ * hash, plus 10 to 20 bits of Bloom filter, as the size of the filter is rounded up to a power of two: between about
+ * 9.3 and 10.5 bytes of memory per revoked key.
+ *
+ * Format (version 1, big-endian):
+ * <pre>
+ * int    magic number
+ * short  format version
+ * short  reserved (zero)
+ * long   issue date, in milliseconds since the epoch
+ * int    number of revoked keys
+ * long[] sorted hashes of the revoked keys
+ * int    signature length
+ * byte[] signature of all preceding bytes, verified with the public key of the product
+ * </pre>
+ *
+ * @see LicenseManager#setRevocationList(RevocationList)
+ */
+public final class RevocationList {
+
+	/**
+	 * A revocation list without any revoked keys.
+	 */
+	public static final RevocationList EMPTY = new RevocationList(0L, new long[0]);
+
+	/**
+	 * Current version of the revocation list format.
+	 */
+	public static final short FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x55524556; // "UREV"
+	private static final int HEADER_SIZE = 20;
+	private static final int BITS_PER_KEY = 10;
+	private static final int HASH_FUNCTIONS = 7;
+	private static final int MAX_BLOOM_WORDS = 1 << 26; // 4G bits, 512MB
+
+	private final long issuedAt;
+	private final long[] hashes;
+	private final long[] bloomFilter;
+	private final long bloomMask;
+
+	private RevocationList(long issuedAt, long[] sortedHashes) {
+		this.issuedAt = issuedAt;
+		this.hashes = sortedHashes;
+
+		int words = 1;
+		long bits = Math.max(64L, (long) sortedHashes.length * BITS_PER_KEY);
+		while ((long) words * 64L < bits && words < MAX_BLOOM_WORDS) {
+			words <<= 1;
+		}
+		this.bloomFilter = new long[words];
+		this.bloomMask = (long) words * 64L - 1L;
+
+		for (long hash : sortedHashes) {
+			long h1 = mix(hash);
+			long h2 = mix(h1) | 1L;
+			for (int i = 0; i < HASH_FUNCTIONS; i++) {
+				long bit = (h1 + i * h2) & bloomMask;
+				bloomFilter[(int) (bit >>> 6)] |= 1L << bit;
+			}
+		}
+	}
+
+	/**
+	 * Loads a revocation list and verifies its signature.
+	 *
+	 * @param content  a buffer with the revocation list, in the format produced by {@link #encode(Collection, long, Signature)}.
+	 *                 Its position is not modified.
+	 * @param verifier the verifier of the product's signature (see {@link Product#signatureVerifier(String)})
+	 *
+	 * @return the revocation list.
+	 *
+	 * @throws IllegalArgumentException if the content is not a valid revocation list, or its signature is invalid.
+	 */
+	public static RevocationList load(ByteBuffer content, SignatureVerifier verifier) {
+		Args.notNull(content, "Revocation list content");
+		Args.notNull(verifier, "Signature verifier");
+
+		ByteBuffer in = content.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int start = in.position();
+		if (in.remaining() < HEADER_SIZE + 4 || in.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Content is not a revocation list");
+		}
+		short version = in.getShort();
+		if (version != FORMAT_VERSION) {
+			throw new IllegalArgumentException("Unsupported revocation list format version: " + version);
+		}
+		in.getShort();
+		long issuedAt = in.getLong();
+		int count = in.getInt();
+		if (count < 0 || (long) in.remaining() < (long) count * 8L + 4L) {
+			throw new IllegalArgumentException("Revocation list is truncated");
+		}
+
+		long[] hashes = new long[count];
+		for (int i = 0; i < count; i++) {
+			hashes[i] = in.getLong();
+			if (i > 0 && hashes[i] <= hashes[i - 1]) {
+				throw new IllegalArgumentException("Revocation list hashes are not sorted");
+			}
+		}
+
+		int signedLength = in.position() - start;
+		int signatureLength = in.getInt();
+		if (signatureLength < 0 || in.remaining() < signatureLength) {
+			throw new IllegalArgumentException("Revocation list is truncated");
+		}
+		byte[] signature = new byte[signatureLength];
+		in.get(signature);
+
+		ByteBuffer signed = content.duplicate();
+		signed.limit(signed.position() + signedLength);
+		if (!verifier.verify(signed, signature)) {
+			throw new IllegalArgumentException("Invalid revocation list signature");
+		}
+
+		return new RevocationList(issuedAt, hashes);
+	}
+
+	/**
+	 * Encodes and signs a revocation list. Used by license servers to publish revoked keys.
+	 *
+	 * @param revokedSerialKeys the serial keys to revoke
+	 * @param issuedAt          the issue date of the list, in milliseconds since the epoch
+	 * @param signer            a {@link Signature} initialized for signing with the product's private key
+	 *
+	 * @return a buffer with the signed revocation list, ready to be read.
+	 *
+	 * @throws SignatureException if the list can't be signed
+	 */
+	public static ByteBuffer encode(Collection<String> revokedSerialKeys, long issuedAt, Signature signer) throws SignatureException {
+		Args.notNull(revokedSerialKeys, "Revoked serial keys");
+		Args.notNull(signer, "Signer");
+
+		long[] hashes = new long[revokedSerialKeys.size()];
+		int count = 0;
+		for (String serialKey : revokedSerialKeys) {
+			hashes[count++] = hash(serialKey);
+		}
+		Arrays.sort(hashes);
+		int unique = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0 || hashes[i] != hashes[unique - 1]) {
+				hashes[unique++] = hashes[i];
+			}
+		}
+
+		ByteBuffer content = ByteBuffer.allocate(HEADER_SIZE + unique * 8);
+		content.putInt(MAGIC);
+		content.putShort(FORMAT_VERSION);
+		content.putShort((short) 0);
+		content.putLong(issuedAt);
+		content.putInt(unique);
+		for (int i = 0; i < unique; i++) {
+			content.putLong(hashes[i]);
+		}
+
+		signer.update(content.array(), 0, content.position());
+		byte[] signature = signer.sign();
+
+		ByteBuffer out = ByteBuffer.allocate(content.position() + 4 + signature.length);
+		out.put(content.array(), 0, content.position());
+		out.putInt(signature.length);
+		out.put(signature);
+		out.flip();
+		return out;
+	}
+
+	/**
+	 * Computes the 64-bit hash of a serial key stored in revocation lists (FNV-1a over the UTF-16 code units of the
+	 * key, low byte first).
+	 *
+	 * @param serialKey the serial key
+	 *
+	 * @return the hash of the serial key.
+	 */
+	public static long hash(String serialKey) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < serialKey.length(); i++) {
+			char ch = serialKey.charAt(i);
+			hash ^= ch & 0xFF;
+			hash *= 0x100000001b3L;
+			hash ^= ch >>> 8;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Indicates whether a serial key has been revoked. Runs in constant time for most keys that are not revoked,
+	 * and never allocates memory.
+	 *
+	 * @param serialKey the serial key of a license (see {@link License#getSerialKey()})
+	 *
+	 * @return {@code true} if the given serial key is in this list, otherwise {@code false}.
+	 */
+	public boolean isRevoked(String serialKey) {
+		if (serialKey == null || hashes.length == 0) {
+			return false;
+		}
+		long hash = hash(serialKey);
+
+		long h1 = mix(hash);
+		long h2 = mix(h1) | 1L;
+		for (int i = 0; i < HASH_FUNCTIONS; i++) {
+			long bit = (h1 + i * h2) & bloomMask;
+			if ((bloomFilter[(int) (bit >>> 6)] & (1L << bit)) == 0L) {
+				return false;
+			}
+		}
+		return Arrays.binarySearch(hashes, hash) >= 0;
+	}
+
+	/**
+	 * Returns the date this list was issued by the license server.
+	 *
+	 * @return the issue date, in milliseconds since the epoch.
+	 */
+	public long getIssuedAt() {
+		return issuedAt;
+	}
+
+	/**
+	 * Returns the number of revoked keys in this list.
+	 *
+	 * @return the number of revoked keys.
+	 */
+	public int size() {
+		return hashes.length;
+	}
+
+	@Override
+	public String toString() {
+		return "Revocation list with " + hashes.length + " keys issued at " + new Date(issuedAt);
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.concurrent;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Periodically runs a license synchronization in a {@link ScheduledExecutorService}, so that the validation result
+ * is refreshed before it expires and request threads never have to trigger a remote synchronization.
+ *
+ * Each refresh is scheduled after a random delay between {@code (1 - jitter) * period} and {@code period},
+ * which spreads refreshes of many processes started at the same time. A {@link LicenseValidationAction} is
+ * notified whenever the result of a refresh differs from the previous result (e.g. from
+ * {@link LicenseValidationResult#VALID} to {@link LicenseValidationResult#EXPIRED}). A synchronization that fails
+ * with any exception or error produces {@link LicenseValidationResult#ERROR}, and neither failing synchronizations
+ * nor failing listeners stop the refreshes.
+ *
+ * @see LicenseManager#startBackgroundRefresh(ScheduledExecutorService, LicenseValidationAction)
+ */
+public final class BackgroundRefresher {
+
+	private static final Random random = new Random();
+
+	private final Callable<LicenseValidationResult> synchronization;
+	private final ScheduledExecutorService scheduler;
+	private final long periodNanos;
+	private final double jitter;
+	private final LicenseValidationAction changeListener;
+
+	private final AtomicReference<LicenseValidationResult> lastResult = new AtomicReference<LicenseValidationResult>();
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final AtomicLong generation = new AtomicLong();
+	private volatile Future<?> scheduled;
+
+	/**
+	 * A chain of refreshes, started by {@link #start(LicenseValidationResult)}. A chain ends once its generation
+	 * is no longer current, so a refresh still in progress when the refresher is stopped and started again never
+	 * schedules a second chain.
+	 */
+	private final class Refresh implements Runnable {
+		private final long chain;
+
+		Refresh(long chain) {
+			this.chain = chain;
+		}
+
+		boolean isCurrent() {
+			return running.get() && generation.get() == chain;
+		}
+
+		@Override
+		public void run() {
+			if (isCurrent()) {
+				try {
+					refresh(this);
+				} finally {
+					scheduleNext(this);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a new background refresher. Call {@link #start(LicenseValidationResult)} to begin refreshing.
+	 *
+	 * @param synchronization the operation that synchronizes the license with the license server and returns
+	 *                        the validation result.
+	 * @param scheduler       the executor that will run the synchronization.
+	 * @param period          the maximum interval between synchronizations, typically shorter than
+	 *                        {@link LicenseManager#getValidationCacheDuration()} so that the cached result is
+	 *                        refreshed before it expires.
+	 * @param unit            the time unit of the period
+	 * @param jitter          the fraction of the period used to randomize the interval between
+	 *                        synchronizations, between {@code 0.0} and {@code 1.0}.
+	 * @param changeListener  the action to notify when the validation result changes, or {@code null}.
+	 */
+	public BackgroundRefresher(Callable<LicenseValidationResult> synchronization, ScheduledExecutorService scheduler, long period, TimeUnit unit, double jitter, LicenseValidationAction changeListener) {
+		Args.notNull(synchronization, "License synchronization");
+		Args.notNull(scheduler, "Scheduler");
+		Args.notNull(unit, "Time unit");
+		if (period <= 0) {
+			throw new IllegalArgumentException("Refresh period must be positive. Got " + period);
+		}
+		if (jitter < 0.0 || jitter > 1.0) {
+			throw new IllegalArgumentException("Jitter must be between 0.0 and 1.0. Got " + jitter);
+		}
+
+		this.synchronization = synchronization;
+		this.scheduler = scheduler;
+		this.periodNanos = unit.toNanos(period);
+		this.jitter = jitter;
+		this.changeListener = changeListener;
+	}
+
+	/**
+	 * Starts refreshing in the background. Does nothing if already started.
+	 *
+	 * @param currentResult the current validation result, used to detect changes produced by the first refresh.
+	 */
+	public void start(LicenseValidationResult currentResult) {
+		if (running.compareAndSet(false, true)) {
+			lastResult.set(currentResult);
+			scheduleNext(new Refresh(generation.incrementAndGet()));
+		}
+	}
+
+	/**
+	 * Stops refreshing. A refresh in progress is allowed to complete, but no further refreshes are scheduled.
+	 */
+	public void stop() {
+		if (running.compareAndSet(true, false)) {
+			generation.incrementAndGet();
+			Future<?> next = scheduled;
+			if (next != null) {
+				next.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Indicates whether this refresher has been started and not stopped.
+	 *
+	 * @return {@code true} if refreshes are being scheduled.
+	 */
+	public boolean isRunning() {
+		return running.get();
+	}
+
+	/**
+	 * Returns the result of the last refresh, or the result given to {@link #start(LicenseValidationResult)} if no
+	 * refresh has completed yet.
+	 *
+	 * @return the last known validation result.
+	 */
+	public LicenseValidationResult getLastResult() {
+		return lastResult.get();
+	}
+
+	/**
+	 * Returns the delay before the next refresh, between {@code (1 - jitter) * period} and {@code period}.
+	 *
+	 * @return the next delay, in nanoseconds.
+	 */
+	long nextDelay() {
+		return periodNanos - (long) (random.nextDouble() * jitter * periodNanos);
+	}
+
+	private void scheduleNext(Refresh refresh) {
+		if (!refresh.isCurrent()) {
+			return;
+		}
+		try {
+			Future<?> next = scheduler.schedule(refresh, nextDelay(), TimeUnit.NANOSECONDS);
+			scheduled = next;
+			if (!refresh.isCurrent()) { // stopped while scheduling
+				next.cancel(false);
+			}
+		} catch (RejectedExecutionException e) {
+			if (refresh.isCurrent()) {
+				running.compareAndSet(true, false);
+			}
+		}
+	}
+
+	private void refresh(Refresh refresh) {
+		LicenseValidationResult result;
+		try {
+			result = synchronization.call();
+		} catch (Throwable e) {
+			result = LicenseValidationResult.ERROR;
+		}
+		if (result == null) {
+			result = LicenseValidationResult.ERROR;
+		}
+
+		if (!refresh.isCurrent()) {
+			return;
+		}
+		LicenseValidationResult previous = lastResult.getAndSet(result);
+		if (previous != result && changeListener != null) {
+			try {
+				changeListener.licenseValidated(result);
+			} catch (Throwable e) {
+				// a failing listener must not stop future refreshes
+			}
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.concurrent;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Delivers {@link LicenseValidationAction} notifications in a dedicated thread, so that callbacks never run in the
+ * thread that requested the validation, and a slow callback never delays license synchronizations.
+ *
+ * Notifications are held in a bounded queue. When the queue is full, the {@link RejectionPolicy} given in the
+ * constructor decides what happens to new notifications. A single notification can carry many actions to be
+ * notified of the same result, e.g. all actions registered for a product, and the dispatcher thread drains up to 256
+ * queued notifications at once before running them, so bursts of notifications cost a single wake-up. The dispatcher
+ * thread only wakes up when there are notifications to deliver or when the dispatcher is shut down.
+ *
+ * The dispatcher thread is created with the given {@link ThreadFactory} on the first notification. Exceptions and
+ * errors thrown by callbacks are discarded and don't affect other callbacks or the dispatcher thread.
+ *
+ * @see LicenseManager#setCallbackDispatcher(CallbackDispatcher)
+ */
+public final class CallbackDispatcher {
+
+	/**
+	 * What to do with a notification when the queue of the dispatcher is full.
+	 */
+	public enum RejectionPolicy {
+		/**
+		 * Discards the new notification.
+		 */
+		DISCARD,
+		/**
+		 * Discards the oldest queued notification to make room for the new one.
+		 */
+		DISCARD_OLDEST,
+		/**
+		 * Blocks the thread producing the notification until there is room in the queue. The callback still runs in
+		 * the dispatcher thread. Notifications produced by callbacks, i.e. in the dispatcher thread itself, are
+		 * discarded instead of blocking, as only the dispatcher thread can make room in the queue.
+		 */
+		BLOCK
+	}
+
+	private static final class Notification {
+		final LicenseValidationResult result;
+		final LicenseValidationAction action;
+		final Collection<LicenseValidationAction> actions;
+
+		Notification(LicenseValidationResult result, LicenseValidationAction action, Collection<LicenseValidationAction> actions) {
+			this.result = result;
+			this.action = action;
+			this.actions = actions;
+		}
+
+		void run() {
+			if (action != null) {
+				notify(action);
+			} else {
+				for (LicenseValidationAction a : actions) {
+					notify(a);
+				}
+			}
+		}
+
+		private void notify(LicenseValidationAction action) {
+			try {
+				action.licenseValidated(result);
+			} catch (Throwable e) {
+				// a failing callback must not prevent other callbacks from running, nor stop the dispatcher thread
+			}
+		}
+	}
+
+	/**
+	 * Queued by {@link #shutdown()} to wake up the dispatcher thread. Has no actions to notify.
+	 */
+	private static final Notification WAKE_UP = new Notification(null, null, Collections.<LicenseValidationAction>emptyList());
+
+	private final BlockingQueue<Notification> queue;
+	private final int maxBatch;
+	private final ThreadFactory threadFactory;
+	private final RejectionPolicy rejectionPolicy;
+
+	private final AtomicBoolean started = new AtomicBoolean();
+	private final AtomicLong rejected = new AtomicLong();
+	private volatile boolean shutdown;
+	private volatile boolean terminated;
+	private volatile Thread thread;
+
+	private final Runnable loop = new Runnable() {
+		@Override
+		public void run() {
+			List<Notification> batch = new ArrayList<Notification>();
+			while (!shutdown || !queue.isEmpty()) {
+				try {
+					batch.add(queue.take());
+					queue.drainTo(batch, maxBatch - 1);
+					deliver(batch);
+				} catch (InterruptedException e) {
+					// keep delivering until shut down
+				} finally {
+					batch.clear();
+				}
+			}
+			// notifications queued concurrently with the termination are either delivered here, or removed from
+			// the queue and reported as rejected by the thread that produced them (see enqueue)
+			terminated = true;
+			queue.drainTo(batch);
+			deliver(batch);
+		}
+	};
+
+	private static void deliver(List<Notification> batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).run();
+		}
+	}
+
+	/**
+	 * Creates a new dispatcher that runs callbacks in a daemon thread with the given name.
+	 *
+	 * @param threadName      the name of the dispatcher thread
+	 * @param queueCapacity   the maximum number of notifications waiting to be delivered.
+	 * @param rejectionPolicy what to do with new notifications when the queue is full.
+	 */
+	public CallbackDispatcher(String threadName, int queueCapacity, RejectionPolicy rejectionPolicy) {
+		this(namedThreadFactory(threadName), queueCapacity, rejectionPolicy);
+	}
+
+	/**
+	 * Creates a new dispatcher.
+	 *
+	 * @param threadFactory   the factory of the dispatcher thread
+	 * @param queueCapacity   the maximum number of notifications waiting to be delivered.
+	 * @param rejectionPolicy what to do with new notifications when the queue is full.
+	 */
+	public CallbackDispatcher(ThreadFactory threadFactory, int queueCapacity, RejectionPolicy rejectionPolicy) {
+		Args.notNull(threadFactory, "Thread factory");
+		Args.notNull(rejectionPolicy, "Rejection policy");
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("Queue capacity must be positive. Got " + queueCapacity);
+		}
+		this.threadFactory = threadFactory;
+		this.queue = new ArrayBlockingQueue<Notification>(queueCapacity);
+		this.maxBatch = Math.min(queueCapacity, 256);
+		this.rejectionPolicy = rejectionPolicy;
+	}
+
+	/**
+	 * Creates a {@link ThreadFactory} that produces daemon threads with the given name, followed by a sequence number
+	 * if more than one thread is created.
+	 *
+	 * @param threadName the name of the threads
+	 *
+	 * @return a factory of named daemon threads.
+	 */
+	public static ThreadFactory namedThreadFactory(final String threadName) {
+		Args.notBlank(threadName, "Thread name");
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				int n = count.incrementAndGet();
+				Thread thread = new Thread(r, n == 1 ? threadName : threadName + "-" + n);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Schedules the notification of a validation result to an action.
+	 *
+	 * @param action the action to notify
+	 * @param result the validation result
+	 *
+	 * @return {@code true} if the notification was queued, {@code false} if it was rejected.
+	 */
+	public boolean dispatch(LicenseValidationAction action, LicenseValidationResult result) {
+		Args.notNull(action, "License validation action");
+		return enqueue(new Notification(result, action, null));
+	}
+
+	/**
+	 * Schedules the notification of a validation result to many actions at once. The actions are notified in
+	 * iteration order, in a single queued notification.
+	 *
+	 * @param actions the actions to notify. The collection is copied.
+	 * @param result  the validation result
+	 *
+	 * @return {@code true} if the notification was queued, {@code false} if it was rejected.
+	 */
+	public boolean dispatch(Collection<LicenseValidationAction> actions, LicenseValidationResult result) {
+		Args.notNull(actions, "License validation actions");
+		if (actions.isEmpty()) {
+			return true;
+		}
+		return enqueue(new Notification(result, null, new ArrayList<LicenseValidationAction>(actions)));
+	}
+
+	private boolean enqueue(Notification notification) {
+		if (shutdown) {
+			rejected.incrementAndGet();
+			return false;
+		}
+		start();
+
+		if (!offer(notification)) {
+			rejected.incrementAndGet();
+			return false;
+		}
+		if (terminated && queue.remove(notification)) {
+			// the dispatcher thread terminated and won't deliver this notification
+			rejected.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private boolean offer(Notification notification) {
+		if (queue.offer(notification)) {
+			return true;
+		}
+		switch (rejectionPolicy) {
+			case DISCARD_OLDEST:
+				while (!queue.offer(notification)) {
+					Notification oldest = queue.poll();
+					if (oldest != null && oldest != WAKE_UP) {
+						rejected.incrementAndGet();
+					}
+				}
+				return true;
+			case BLOCK:
+				if (isDispatcherThread()) {
+					return false;
+				}
+				try {
+					queue.put(notification);
+					return true;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			default:
+				return false;
+		}
+	}
+
+	private void start() {
+		if (!started.get() && started.compareAndSet(false, true)) {
+			Thread thread = threadFactory.newThread(loop);
+			this.thread = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * Returns the number of notifications discarded because the queue was full or the dispatcher was shut down.
+	 *
+	 * @return the number of rejected notifications.
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * Returns the number of notifications waiting to be delivered.
+	 *
+	 * @return the current queue size.
+	 */
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * Indicates whether the current thread is the dispatcher thread, i.e. whether it's running a callback.
+	 *
+	 * @return {@code true} if called from a callback run by this dispatcher.
+	 */
+	public boolean isDispatcherThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Stops accepting notifications. Notifications already queued are still delivered, after which the dispatcher
+	 * thread terminates. Callbacks in progress are not interrupted.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		queue.offer(WAKE_UP);
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.concurrent;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Keeps the listeners subscribed to changes of the {@link LicenseValidationResult} of a product, and notifies them
+ * only when a new result differs from the previous one.
+ *
+ * Listeners are held in a copy-on-write list, so subscribing and unsubscribing are rare and relatively expensive, but
+ * publishing a result that didn't change is a single volatile read with no locking and no allocation. This makes it
+ * cheap to publish the result of every validation, even when validating on every request.
+ *
+ * Notifications don't carry the result that was published: each delivery reads the last published result when it
+ * runs, and notifies the listeners only if it differs from the last result delivered to them. Deliveries run one at
+ * a time, even if the executor has many threads, so listeners never run concurrently and always end up notified of
+ * the result returned by {@link #getLastResult()}. A change superseded by a newer one before its delivery runs is
+ * not notified, and a delivery discarded by a {@link CallbackDispatcher} is made up for by the delivery of the next
+ * change. If a delivery can't be scheduled, the result it was scheduled for is not recorded as the last result, so
+ * that publishing it again notifies the listeners.
+ *
+ * @see LicenseManager#addResultChangeListener(LicenseValidationAction)
+ */
+public final class ResultChangeNotifier {
+
+	private final List<LicenseValidationAction> listeners = new CopyOnWriteArrayList<LicenseValidationAction>();
+	private final AtomicReference<LicenseValidationResult> lastResult = new AtomicReference<LicenseValidationResult>();
+
+	private final AtomicInteger deliveries = new AtomicInteger();
+	private volatile LicenseValidationResult lastDelivered;
+
+	private final Runnable deliverTask = new Runnable() {
+		@Override
+		public void run() {
+			deliverLatest();
+		}
+	};
+
+	private final LicenseValidationAction deliverAction = new LicenseValidationAction() {
+		@Override
+		public void licenseValidated(LicenseValidationResult result) {
+			deliverLatest();
+		}
+	};
+
+	/**
+	 * Notifies the listeners of the last published result if it wasn't delivered yet. Only one thread delivers at a
+	 * time: a thread that finds a delivery in progress leaves it to the delivering thread, which checks the last
+	 * result again before finishing.
+	 */
+	private void deliverLatest() {
+		if (deliveries.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			LicenseValidationResult result;
+			while ((result = lastResult.get()) != lastDelivered) {
+				lastDelivered = result;
+				for (LicenseValidationAction listener : listeners) {
+					try {
+						listener.licenseValidated(result);
+					} catch (Throwable e) {
+						// a failing listener must not prevent other listeners from running
+					}
+				}
+			}
+			missed = deliveries.addAndGet(-missed);
+		} while (missed != 0);
+	}
+	/**
+	 * Subscribes a listener to result changes. A listener subscribed more than once is notified once per
+	 * subscription.
+	 *
+	 * @param listener the listener to notify when the validation result changes.
+	 */
+	public void subscribe(LicenseValidationAction listener) {
+		Args.notNull(listener, "Result change listener");
+		listeners.add(listener);
+	}
+
+	/**
+	 * Unsubscribes a listener.
+	 *
+	 * @param listener the listener to remove
+	 *
+	 * @return {@code true} if the listener was subscribed, otherwise {@code false}.
+	 */
+	public boolean unsubscribe(LicenseValidationAction listener) {
+		return listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the number of subscribed listeners.
+	 *
+	 * @return the number of listeners.
+	 */
+	public int getListenerCount() {
+		return listeners.size();
+	}
+
+	/**
+	 * Returns the last published result.
+	 *
+	 * @return the last result given to {@code publish}, or {@code null} if no result was published yet.
+	 */
+	public LicenseValidationResult getLastResult() {
+		return lastResult.get();
+	}
+
+	/**
+	 * Records a new result as the last result.
+	 *
+	 * @return the previous result, or the given result itself if it didn't change.
+	 */
+	private LicenseValidationResult swap(LicenseValidationResult result) {
+		Args.notNull(result, "Validation result");
+		while (true) {
+			LicenseValidationResult previous = lastResult.get();
+			if (previous == result) {
+				return result;
+			}
+			if (lastResult.compareAndSet(previous, result)) {
+				return previous;
+			}
+		}
+	}
+
+	/**
+	 * Restores the previous result after the delivery of a change couldn't be scheduled, unless another result was
+	 * published or the change was delivered in the meantime.
+	 */
+	private void restore(LicenseValidationResult result, LicenseValidationResult previous) {
+		if (lastDelivered != result) {
+			lastResult.compareAndSet(result, previous);
+		}
+	}
+
+	/**
+	 * Publishes a validation result, notifying all listeners through the given dispatcher if it differs from the
+	 * last published result.
+	 *
+	 * @param result     the latest validation result
+	 * @param dispatcher the dispatcher that runs the listeners.
+	 *
+	 * @return {@code true} if the result changed and listeners will be notified, or {@code false} if the result didn't
+	 * change, there are no listeners, or the dispatcher rejected the notification.
+	 */
+	public boolean publish(LicenseValidationResult result, CallbackDispatcher dispatcher) {
+		LicenseValidationResult previous = swap(result);
+		if (previous == result) {
+			return false;
+		}
+		if (dispatcher.dispatch(deliverAction, result)) {
+			return !listeners.isEmpty();
+		}
+		restore(result, previous);
+		return false;
+	}
+
+	/**
+	 * Publishes a validation result, notifying all listeners with a task submitted to the given executor if it
+	 * differs from the last published result.
+	 *
+	 * @param result   the latest validation result
+	 * @param executor the executor that runs the listeners.
+	 *
+	 * @return {@code true} if the result changed and listeners will be notified, or {@code false} if the result didn't
+	 * change, there are no listeners, or the executor rejected the notification.
+	 */
+	public boolean publish(LicenseValidationResult result, Executor executor) {
+		LicenseValidationResult previous = swap(result);
+		if (previous == result) {
+			return false;
+		}
+		try {
+			executor.execute(deliverTask);
+		} catch (RejectedExecutionException e) {
+			restore(result, previous);
+			return false;
+		}
+		return !listeners.isEmpty();
+	}
+}
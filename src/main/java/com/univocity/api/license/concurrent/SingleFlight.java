@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.concurrent;
+
+import com.univocity.api.common.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Coalesces concurrent executions of the same operation: while an operation identified by a given key is in
+ * flight, other callers with the same key wait for its result instead of executing the operation again. Once the
+ * operation completes, the next call with that key starts a new execution.
+ *
+ * License managers use this to share a single read of the local license store among concurrent offline
+ * validations of a product, and a single network call among concurrent remote validations.
+ *
+ * Registering and looking up an operation in flight is lock-free. The {@link Future} returned to callers can't be
+ * used to cancel the shared operation, so that one caller giving up doesn't fail the operation for all others.
+ *
+ * @param <K> the type of the keys that identify operations
+ * @param <V> the type of the results produced by operations
+ */
+public final class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, Call> calls = new ConcurrentHashMap<K, Call>();
+
+	private final class Call extends FutureTask<V> {
+		private final K key;
+		private final Future<V> view = new Future<V>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return Call.this.isCancelled();
+			}
+
+			@Override
+			public boolean isDone() {
+				return Call.this.isDone();
+			}
+
+			@Override
+			public V get() throws InterruptedException, ExecutionException {
+				return Call.this.get();
+			}
+
+			@Override
+			public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+				return Call.this.get(timeout, unit);
+			}
+		};
+
+		Call(K key, Callable<V> operation) {
+			super(operation);
+			this.key = key;
+		}
+
+		@Override
+		protected void done() {
+			calls.remove(key, this);
+		}
+
+		void fail(Throwable cause) {
+			setException(cause);
+		}
+	}
+
+	/**
+	 * Executes an operation in the calling thread, unless an operation with the same key is already in flight, in
+	 * which case the calling thread waits for its result.
+	 *
+	 * @param key       the key that identifies the operation
+	 * @param operation the operation to execute if none is in flight for the given key
+	 *
+	 * @return the result of the operation executed by this or by a concurrent caller.
+	 *
+	 * @throws ExecutionException   if the operation failed
+	 * @throws InterruptedException if the calling thread was interrupted while waiting for the result
+	 */
+	public V execute(K key, Callable<V> operation) throws ExecutionException, InterruptedException {
+		Args.notNull(key, "Operation key");
+		Args.notNull(operation, "Operation");
+
+		Call task = new Call(key, operation);
+		Call existing = calls.putIfAbsent(key, task);
+		if (existing != null) {
+			return existing.get();
+		}
+		task.run();
+		return task.get();
+	}
+
+	/**
+	 * Submits an operation for execution in a given {@link Executor}, unless an operation with the same key is
+	 * already in flight, in which case the {@link Future} of the operation in flight is returned.
+	 *
+	 * If the executor rejects the operation, callers already waiting for it fail with an {@link ExecutionException}
+	 * caused by the rejection, and the next call with the same key submits the operation again.
+	 *
+	 * @param key       the key that identifies the operation
+	 * @param operation the operation to execute if none is in flight for the given key
+	 * @param executor  the executor that will run the operation
+	 *
+	 * @return the future result of the operation in flight for the given key. Its {@link Future#cancel(boolean)}
+	 * method has no effect.
+	 *
+	 * @throws RejectedExecutionException if the operation can't be accepted by the executor.
+	 */
+	public Future<V> submit(K key, Callable<V> operation, Executor executor) {
+		Args.notNull(key, "Operation key");
+		Args.notNull(operation, "Operation");
+		Args.notNull(executor, "Executor");
+
+		Call task = new Call(key, operation);
+		Call existing = calls.putIfAbsent(key, task);
+		if (existing != null) {
+			return existing.view;
+		}
+		try {
+			executor.execute(task);
+		} catch (RuntimeException e) {
+			task.fail(e);
+			throw e;
+		} catch (Error e) {
+			task.fail(e);
+			throw e;
+		}
+		return task.view;
+	}
+
+	/**
+	 * Returns the future result of the operation in flight for a given key, if any.
+	 *
+	 * @param key the key that identifies the operation
+	 *
+	 * @return the future result of the operation in flight, or {@code null} if no operation with the given key is
+	 * in flight. Its {@link Future#cancel(boolean)} method has no effect.
+	 */
+	public Future<V> inFlight(K key) {
+		Call call = calls.get(key);
+		return call == null ? null : call.view;
+	}
+
+	/**
+	 * Returns the number of operations in flight.
+	 *
+	 * @return the number of distinct keys whose operations have not completed yet.
+	 */
+	public int size() {
+		return calls.size();
+	}
+}
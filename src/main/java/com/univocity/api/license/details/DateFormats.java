@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import com.univocity.api.common.*;
+
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A thread-safe cache of compiled {@link SimpleDateFormat} instances, keyed by date pattern. Compiling a pattern is
+ * considerably more expensive than formatting a date, so implementations of {@link com.univocity.api.license.License}
+ * use this class to format dates without creating a new {@link SimpleDateFormat} on every call.
+ *
+ * The cache holds at most {@link #MAX_PATTERNS} patterns. Once full, dates with patterns not in the cache are
+ * formatted with a new formatter that is discarded after use, so that arbitrary patterns can't make the cache
+ * grow without limit.
+ */
+public final class DateFormats {
+
+	/**
+	 * Maximum number of date patterns kept in the cache.
+	 */
+	public static final int MAX_PATTERNS = 64;
+
+	private static final ConcurrentMap<String, Formatter> formatters = new ConcurrentHashMap<String, Formatter>();
+
+	private DateFormats() {
+	}
+
+	private static final class Formatter {
+		private final SimpleDateFormat prototype;
+		private final AtomicReference<SimpleDateFormat> available;
+
+		Formatter(SimpleDateFormat prototype) {
+			this.prototype = prototype;
+			this.available = new AtomicReference<SimpleDateFormat>((SimpleDateFormat) prototype.clone());
+		}
+
+		String format(Date date) {
+			SimpleDateFormat format = available.getAndSet(null);
+			if (format == null) {
+				format = (SimpleDateFormat) prototype.clone();
+			}
+			try {
+				return format.format(date);
+			} finally {
+				available.lazySet(format);
+			}
+		}
+	}
+
+	private static Formatter formatter(String datePattern) {
+		Args.notNull(datePattern, "Date pattern");
+
+		Formatter formatter = formatters.get(datePattern);
+		if (formatter == null) {
+			formatter = new Formatter(new SimpleDateFormat(datePattern));
+			if (formatters.size() < MAX_PATTERNS) {
+				Formatter existing = formatters.putIfAbsent(datePattern, formatter);
+				if (existing != null) {
+					formatter = existing;
+				}
+			}
+		}
+		return formatter;
+	}
+
+	/**
+	 * Formats a date using the given pattern.
+	 *
+	 * @param date        the date to format
+	 * @param datePattern the date mask to be used to format the date, as accepted by {@link SimpleDateFormat}.
+	 *
+	 * @return the formatted date, or {@code null} if the given date is {@code null}
+	 *
+	 * @throws IllegalArgumentException if the given pattern is invalid
+	 */
+	public static String format(Calendar date, String datePattern) {
+		if (date == null) {
+			return null;
+		}
+		return formatter(datePattern).format(date.getTime());
+	}
+
+	/**
+	 * Formats a date represented as an epoch day using the given pattern. The date is formatted as midnight of the
+	 * default time zone.
+	 *
+	 * @param epochDay    the number of days elapsed from {@code 1970-01-01}
+	 * @param datePattern the date mask to be used to format the date, as accepted by {@link SimpleDateFormat}.
+	 *
+	 * @return the formatted date, or {@code null} if the given epoch day is {@link EpochDays#NONE}
+	 *
+	 * @throws IllegalArgumentException if the given pattern is invalid
+	 */
+	public static String format(int epochDay, String datePattern) {
+		return format(EpochDays.toCalendar(epochDay), datePattern);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import java.util.*;
+
+/**
+ * Conversions between calendar dates and epoch days, i.e. the number of days elapsed since {@code 1970-01-01}
+ * in the proleptic Gregorian calendar. Epoch days represent a date without time or time zone, and allow dates to be
+ * stored and compared as plain {@code int} values.
+ */
+public final class EpochDays {
+
+	/**
+	 * Value used to represent the absence of a date (e.g. a license that doesn't expire).
+	 */
+	public static final int NONE = Integer.MIN_VALUE;
+
+	private EpochDays() {
+	}
+
+	/**
+	 * Returns the epoch day of a given date.
+	 *
+	 * @param year  the year
+	 * @param month the month, from {@code 1} to {@code 12}
+	 * @param day   the day of the month, from {@code 1} to {@code 31}
+	 *
+	 * @return the number of days elapsed from {@code 1970-01-01} until the given date.
+	 */
+	public static int of(int year, int month, int day) {
+		// days from civil algorithm, see http://howardhinnant.github.io/date_algorithms.html
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Returns the epoch day of the date in a given {@link Calendar}, using the calendar's own year, month and day
+	 * fields. The time of day and time zone are ignored.
+	 *
+	 * @param calendar the calendar with the date to convert
+	 *
+	 * @return the number of days elapsed from {@code 1970-01-01} until the given date, or {@link #NONE} if the
+	 * calendar is {@code null}
+	 */
+	public static int of(Calendar calendar) {
+		if (calendar == null) {
+			return NONE;
+		}
+		int year = calendar.get(Calendar.YEAR);
+		if (calendar.get(Calendar.ERA) == GregorianCalendar.BC) {
+			year = 1 - year;
+		}
+		return of(year, calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+	}
+
+	/**
+	 * Creates a {@link Calendar} with the date represented by the given epoch day, at midnight of the
+	 * default time zone.
+	 *
+	 * @param epochDay the number of days elapsed from {@code 1970-01-01}
+	 *
+	 * @return a new calendar with the given date, or {@code null} if the epoch day is {@link #NONE}
+	 */
+	public static Calendar toCalendar(int epochDay) {
+		if (epochDay == NONE) {
+			return null;
+		}
+		// civil from days algorithm, see http://howardhinnant.github.io/date_algorithms.html
+		int z = epochDay + 719468;
+		int era = (z >= 0 ? z : z - 146096) / 146097;
+		int dayOfEra = z - era * 146097;
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+		GregorianCalendar calendar = new GregorianCalendar();
+		calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+		calendar.clear();
+		calendar.set(year, month - 1, day);
+		calendar.getTimeInMillis();
+		return calendar;
+	}
+}
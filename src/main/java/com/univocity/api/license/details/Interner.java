@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import java.lang.ref.*;
+import java.util.concurrent.*;
+
+/**
+ * Canonicalizes instances of immutable value classes, so that instances with the same state resolve to the same
+ * object and can be compared by reference. Instances are looked up by a key that captures their whole state, as
+ * the {@code equals} method of some value classes ignores part of it (e.g. {@link Store#equals(Object)} ignores the
+ * license server domain).
+ *
+ * Canonical instances are weakly referenced, so applications that create short-lived values with distinct state
+ * don't make this grow without bounds: once a canonical instance is no longer used, its entry is discarded and the
+ * next value interned with the same state becomes the canonical instance. State keys must not reference the
+ * values they identify, otherwise the values are never collected.
+ *
+ * @param <T> the type of instances to intern.
+ */
+final class Interner<T> {
+
+	private final ConcurrentMap<Object, InstanceReference<T>> instances = new ConcurrentHashMap<Object, InstanceReference<T>>();
+	private final ReferenceQueue<T> collected = new ReferenceQueue<T>();
+
+	private static final class InstanceReference<T> extends WeakReference<T> {
+		final Object stateKey;
+
+		InstanceReference(Object stateKey, T value, ReferenceQueue<T> queue) {
+			super(value, queue);
+			this.stateKey = stateKey;
+		}
+	}
+
+	/**
+	 * Returns the canonical instance with the given state, if one has been interned already.
+	 *
+	 * @param stateKey the key of the whole state of the value whose canonical instance is required.
+	 *
+	 * @return the canonical instance, or {@code null} if no value with the given state has been interned or if
+	 * the canonical instance is no longer used.
+	 */
+	T get(Object stateKey) {
+		expungeCollected();
+		InstanceReference<T> reference = instances.get(stateKey);
+		return reference == null ? null : reference.get();
+	}
+
+	/**
+	 * Returns the canonical instance with the given state, registering the given value as the canonical
+	 * instance if none exists.
+	 *
+	 * @param stateKey the key of the whole state of the given value.
+	 * @param value    the value to intern.
+	 *
+	 * @return the canonical instance with the same state as the given value.
+	 */
+	T intern(Object stateKey, T value) {
+		expungeCollected();
+		InstanceReference<T> created = null;
+		while (true) {
+			InstanceReference<T> existing = instances.get(stateKey);
+			if (existing != null) {
+				T canonical = existing.get();
+				if (canonical != null) {
+					return canonical;
+				}
+			}
+			if (created == null) {
+				created = new InstanceReference<T>(stateKey, value, collected);
+			}
+			if (existing == null ? instances.putIfAbsent(stateKey, created) == null : instances.replace(stateKey, existing, created)) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of canonical instances held.
+	 *
+	 * @return the number of entries that haven't been discarded yet.
+	 */
+	int size() {
+		expungeCollected();
+		return instances.size();
+	}
+
+	private void expungeCollected() {
+		Reference<? extends T> reference;
+		while ((reference = collected.poll()) != null) {
+			instances.remove(((InstanceReference<?>) reference).stateKey, reference);
+		}
+	}
+}
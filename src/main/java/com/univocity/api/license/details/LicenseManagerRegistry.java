@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import com.univocity.api.*;
+import com.univocity.api.license.*;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Process-wide registry of {@link LicenseManager} instances. Ensures that {@link Product} definitions with the same
+ * state created independently (e.g. by different modules of an application) share a single license manager and its
+ * caches. Products share a license manager only if they are of the same class and have the same ID, name, public key,
+ * variant, version release date and license server domain (see {@link Product#stateKey()}), so a product can never
+ * be validated with the public key or license server of another product.
+ *
+ * License managers are only weakly referenced by the registry, and are held strongly by the products that use them.
+ * Once no product references a license manager it can be garbage collected, and its entry is removed, so the
+ * registry doesn't grow with products that are no longer in use.
+ *
+ * License managers are created by the first {@link LicenseManagerProvider} that handles the product: explicitly
+ * registered providers are tried first, in registration order, followed by providers discovered with
+ * {@link ServiceLoader} in the class loader of this API, and then by providers only visible to the context class
+ * loader of the current thread. If no provider handles the product, the license manager is built reflectively with
+ * {@link Builder}. Providers and builders must not request the license manager of the product being built.
+ */
+final class LicenseManagerRegistry {
+
+	/**
+	 * Values are a {@link Construction} while the license manager is being built, and a {@link ManagerReference}
+	 * afterwards.
+	 */
+	private static final ConcurrentMap<List<Object>, Object> managers = new ConcurrentHashMap<List<Object>, Object>();
+	private static final ReferenceQueue<LicenseManager> collected = new ReferenceQueue<LicenseManager>();
+
+	private static final List<LicenseManagerProvider> registeredProviders = new CopyOnWriteArrayList<LicenseManagerProvider>();
+
+	private static final class ManagerReference extends WeakReference<LicenseManager> {
+		final List<Object> key;
+
+		ManagerReference(List<Object> key, LicenseManager manager) {
+			super(manager, collected);
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Builds the license manager of a product, recording the building thread so that a provider or builder that
+	 * requests the license manager being built fails instead of waiting for itself.
+	 */
+	private static final class Construction extends FutureTask<LicenseManager> {
+		volatile Thread builder;
+
+		Construction(final Product product) {
+			super(new Callable<LicenseManager>() {
+				@Override
+				public LicenseManager call() {
+					return build(product);
+				}
+			});
+		}
+
+		@Override
+		public void run() {
+			builder = Thread.currentThread();
+			try {
+				super.run();
+			} finally {
+				builder = null;
+			}
+		}
+	}
+
+	private LicenseManagerRegistry() {
+	}
+
+	/**
+	 * Providers discovered with {@link ServiceLoader}, loaded when the first license manager is built.
+	 */
+	private static final class ServiceProviders {
+		static final ClassLoader classLoader = LicenseManagerProvider.class.getClassLoader();
+		static final List<LicenseManagerProvider> providers = load(classLoader);
+
+		/**
+		 * Returns the providers visible to the context class loader of the current thread (e.g. in application servers,
+		 * OSGi containers or plugin systems), excluding the providers already discovered in the class loader of this
+		 * API. Not cached, as the context class loader varies, and license managers are built rarely.
+		 */
+		static List<LicenseManagerProvider> contextProviders() {
+			ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+			if (contextClassLoader == null || contextClassLoader == classLoader) {
+				return Collections.emptyList();
+			}
+			List<LicenseManagerProvider> out = load(contextClassLoader);
+			Iterator<LicenseManagerProvider> it = out.iterator();
+			while (it.hasNext()) {
+				Class<?> providerClass = it.next().getClass();
+				for (LicenseManagerProvider provider : providers) {
+					if (provider.getClass() == providerClass) {
+						it.remove();
+						break;
+					}
+				}
+			}
+			return out;
+		}
+
+		private static List<LicenseManagerProvider> load(ClassLoader classLoader) {
+			List<LicenseManagerProvider> out = new ArrayList<LicenseManagerProvider>();
+			Iterator<LicenseManagerProvider> it = ServiceLoader.load(LicenseManagerProvider.class, classLoader).iterator();
+			while (true) {
+				try {
+					if (!it.hasNext()) {
+						break;
+					}
+				} catch (ServiceConfigurationError e) {
+					// the provider configuration files can't be read: no further providers can be discovered
+					break;
+				}
+				try {
+					out.add(it.next());
+				} catch (ServiceConfigurationError e) {
+					// skip providers that can't be instantiated and fall back to the next one
+				}
+			}
+			return out;
+		}
+	}
+
+	static void register(LicenseManagerProvider provider) {
+		registeredProviders.add(provider);
+	}
+
+	private static LicenseManager build(Product product) {
+		for (LicenseManagerProvider provider : registeredProviders) {
+			LicenseManager manager = provider.newLicenseManager(product);
+			if (manager != null) {
+				return manager;
+			}
+		}
+		for (LicenseManagerProvider provider : ServiceProviders.providers) {
+			LicenseManager manager = provider.newLicenseManager(product);
+			if (manager != null) {
+				return manager;
+			}
+		}
+		for (LicenseManagerProvider provider : ServiceProviders.contextProviders()) {
+			LicenseManager manager = provider.newLicenseManager(product);
+			if (manager != null) {
+				return manager;
+			}
+		}
+		return Builder.build(LicenseManager.class, product);
+	}
+
+	/**
+	 * Returns the number of license managers registered or being built.
+	 *
+	 * @return the number of entries of the registry.
+	 */
+	static int size() {
+		expungeCollected();
+		return managers.size();
+	}
+
+	private static void expungeCollected() {
+		Reference<? extends LicenseManager> reference;
+		while ((reference = collected.poll()) != null) {
+			ManagerReference managerReference = (ManagerReference) reference;
+			managers.remove(managerReference.key, managerReference);
+		}
+	}
+
+	/**
+	 * Returns the {@link LicenseManager} registered for a product with the same state of the given product, building
+	 * it if required. The manager is built only once even if multiple threads request it at the same time.
+	 *
+	 * @param product the product whose license manager is required.
+	 *
+	 * @return the license manager of the given product.
+	 *
+	 * @throws IllegalStateException if called by a provider or builder while it builds the license manager of a
+	 *                               product with the same state.
+	 */
+	static LicenseManager get(Product product) {
+		expungeCollected();
+		List<Object> key = product.stateKey();
+
+		while (true) {
+			Object entry = managers.get(key);
+			if (entry instanceof ManagerReference) {
+				LicenseManager manager = ((ManagerReference) entry).get();
+				if (manager != null) {
+					return manager;
+				}
+				managers.remove(key, entry);
+				continue;
+			}
+
+			Construction task = (Construction) entry;
+			if (task == null) {
+				Construction newTask = new Construction(product);
+				if (managers.putIfAbsent(key, newTask) != null) {
+					continue;
+				}
+				task = newTask;
+				task.run();
+			} else if (task.builder == Thread.currentThread()) {
+				throw new IllegalStateException("License manager of " + product + " requested while it is being built. License manager providers and builders must not call Product.licenseManager() for the product being built");
+			}
+
+			LicenseManager manager;
+			try {
+				manager = task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while building license manager of " + product, e);
+			} catch (ExecutionException e) {
+				managers.remove(key, task);
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException("Unable to build license manager of " + product, cause);
+			}
+			if (manager == null) {
+				managers.remove(key, task);
+				return null;
+			}
+			managers.replace(key, task, new ManagerReference(key, manager));
+			return manager;
+		}
+	}
+}
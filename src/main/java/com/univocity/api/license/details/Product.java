@@ -7,9 +7,14 @@
 
 package com.univocity.api.license.details;
 
-import com.univocity.api.*;
 import com.univocity.api.common.*;
 import com.univocity.api.license.*;
+import com.univocity.api.license.ui.*;
+
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import static com.univocity.api.license.details.ProductVariant.*;
 
@@ -26,8 +31,16 @@ public class Product {
 	private final ProductVariant variant;
 	private final ProductVersion version;
 	private final Store store;
+	private final int hashCode;
+
+	private static final Interner<Product> interner = new Interner<Product>();
+
+	private volatile LicenseManager licenseManager;
+	private volatile PublicKey decodedPublicKey;
+	private volatile ConcurrentMap<String, SignatureVerifier> signatureVerifiers;
 
-	private LicenseManager licenseManager;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<Product, ConcurrentMap> signatureVerifiersUpdater = AtomicReferenceFieldUpdater.newUpdater(Product.class, ConcurrentMap.class, "signatureVerifiers");
 
 	/**
 	 * Builds a product information object with current product version and a public key for license validation
@@ -51,6 +64,59 @@ public class Product {
 		this.variant = variant == null ? LICENSE_PROVIDED : variant;
 		this.version = version;
 		this.store = store;
+
+		int hash = id.hashCode();
+		hash = 31 * hash + name.hashCode();
+		hash = 31 * hash + publicKey.hashCode();
+		hash = 31 * hash + this.variant.hashCode();
+		hash = 31 * hash + version.hashCode();
+		hash = 31 * hash + (store != null ? store.hashCode() : 0);
+		this.hashCode = hash;
+	}
+
+	/**
+	 * Returns a canonical representation of this product. Products with the same state, including the release date
+	 * of their version and the license server domain of their store, resolve to the same instance, so they can be
+	 * compared by reference. The {@link ProductVariant}, {@link ProductVersion} and {@link Store} of the canonical
+	 * instance are canonical as well.
+	 *
+	 * Instances of subclasses of {@code Product} are not interned, as their state can't be copied into a canonical
+	 * instance: this method returns them unchanged.
+	 *
+	 * @return the canonical instance with the same state as this product, or this product if it is an instance of a
+	 * subclass.
+	 */
+	public final Product intern() {
+		if (getClass() != Product.class) {
+			return this;
+		}
+		List<Object> stateKey = stateKey();
+		Product canonical = interner.get(stateKey);
+		if (canonical != null) {
+			return canonical;
+		}
+
+		ProductVariant variant = this.variant.intern();
+		ProductVersion version = this.version.intern();
+		Store store = this.store == null ? null : this.store.intern();
+
+		if (variant == this.variant && version == this.version && store == this.store) {
+			canonical = this;
+		} else {
+			canonical = new Product(id, name, publicKey, variant, version, store);
+		}
+		return interner.intern(stateKey, canonical);
+	}
+
+	/**
+	 * Returns a value that is equal for products of the same class with the same ID, name, public key, variant,
+	 * version and store, including the version release date and the license server domain, which are ignored by
+	 * {@link ProductVersion#equals(Object)} and {@link Store#equals(Object)}. The key doesn't reference this product.
+	 *
+	 * @return the key of the whole state of this product.
+	 */
+	final List<Object> stateKey() {
+		return Arrays.<Object>asList(getClass().getName(), id, name, publicKey, variant.stateKey(), version.stateKey(), store == null ? null : store.stateKey());
 	}
 
 	/**
@@ -80,6 +146,53 @@ public class Product {
 		return publicKey;
 	}
 
+	/**
+	 * Returns the {@link PublicKey} decoded from {@link #publicKey()}. The key is decoded only once.
+	 *
+	 * @return the public key to be used for license validation.
+	 *
+	 * @throws IllegalArgumentException if the public key {@code String} of this product is not a valid public key.
+	 */
+	public final PublicKey decodedPublicKey() {
+		PublicKey key = decodedPublicKey;
+		if (key == null) {
+			key = SignatureVerifier.decodePublicKey(publicKey);
+			decodedPublicKey = key;
+		}
+		return key;
+	}
+
+	/**
+	 * Returns a thread-safe {@link SignatureVerifier} that verifies license signatures produced with a given
+	 * algorithm and the private key associated with the public key of this product. Verifiers are cached per
+	 * algorithm and reuse their {@link Signature} instances, so repeated license validations don't decode keys or
+	 * initialize new signatures.
+	 *
+	 * @param algorithm the signature algorithm, as accepted by {@link Signature#getInstance(String)},
+	 *                  e.g. {@code "SHA256withRSA"}
+	 *
+	 * @return the signature verifier of this product for the given algorithm.
+	 *
+	 * @throws IllegalArgumentException if the public key of this product is invalid or the algorithm is not supported.
+	 */
+	public final SignatureVerifier signatureVerifier(String algorithm) {
+		Args.notBlank(algorithm, "Signature algorithm");
+		ConcurrentMap<String, SignatureVerifier> verifiers = signatureVerifiers;
+		if (verifiers == null) {
+			signatureVerifiersUpdater.compareAndSet(this, null, new ConcurrentHashMap<String, SignatureVerifier>(2));
+			verifiers = signatureVerifiers;
+		}
+		SignatureVerifier verifier = verifiers.get(algorithm);
+		if (verifier == null) {
+			verifier = new SignatureVerifier(decodedPublicKey(), algorithm);
+			SignatureVerifier existing = verifiers.putIfAbsent(algorithm, verifier);
+			if (existing != null) {
+				verifier = existing;
+			}
+		}
+		return verifier;
+	}
+
 	/**
 	 * Returns the {@link ProductVariant} associated with the current version.
 	 *
@@ -110,13 +223,102 @@ public class Product {
 	/**
 	 * Returns the {@link LicenseManager} used to manage and validate licenses associated with this product.
 	 *
+	 * License managers are shared process-wide: products of the same class with the same {@link #id()},
+	 * {@link #name()}, {@link #publicKey()}, {@link #variant()}, {@link #version()} (including its release date)
+	 * and {@link #store()} (including its license server domain) get the same license manager and its caches, even if
+	 * created independently, for as long as any of them references it. After the first call, this method is a single
+	 * volatile read and never blocks.
+	 *
+	 * The license manager is created by the first {@link LicenseManagerProvider} that handles this product, or built
+	 * reflectively if there is none.
+	 *
 	 * @return the license manager of this product.
 	 */
-	public synchronized final LicenseManager licenseManager() {
-		if (licenseManager == null) {
-			licenseManager = Builder.build(LicenseManager.class, this);
+	public final LicenseManager licenseManager() {
+		LicenseManager manager = licenseManager;
+		if (manager == null) {
+			manager = LicenseManagerRegistry.get(this);
+			licenseManager = manager;
+		}
+		return manager;
+	}
+
+	/**
+	 * Registers a {@link LicenseManagerProvider} to create license managers without reflection, in addition to the
+	 * providers discovered with {@link java.util.ServiceLoader}. Registered providers are tried first, in registration
+	 * order, and only affect license managers not yet created.
+	 *
+	 * @param provider the provider to register
+	 */
+	public static void registerLicenseManagerProvider(LicenseManagerProvider provider) {
+		Args.notNull(provider, "License manager provider");
+		LicenseManagerRegistry.register(provider);
+	}
+
+	/**
+	 * Returns the {@link LicenseManager} of this product with its graphical license management user interface.
+	 * Unlike {@link #licenseManager()}, using the returned license manager may load and initialize AWT classes.
+	 *
+	 * @return the license manager of this product, with its graphical user interface.
+	 *
+	 * @throws IllegalStateException if the license manager implementation doesn't provide a graphical user interface.
+	 */
+	public final GuiLicenseManager guiLicenseManager() {
+		LicenseManager manager = licenseManager();
+		if (manager instanceof GuiLicenseManager) {
+			return (GuiLicenseManager) manager;
+		}
+		throw new IllegalStateException("License manager of " + this + " doesn't provide a graphical user interface");
+	}
+
+	/**
+	 * Validates the licenses of multiple products at once. Products are grouped by the license server they
+	 * synchronize with: the {@link Store#licenseServerDomain()} of their store, and the proxy and
+	 * {@link com.univocity.api.license.remote.ConnectionSettings} of their {@link #licenseManager()}. Each group is
+	 * validated with a single call to {@link LicenseManager#validateAll(Collection)} on the license manager of its
+	 * first product, so all products of a group that must be synchronized are sent to the license server in one
+	 * batch (see {@link LicenseManager#synchronize(Collection)}), while each product is still validated with its own
+	 * public key by its own license manager.
+	 *
+	 * @param products the products whose licenses should be validated.
+	 *
+	 * @return a map of each given product to the result of its offline license validation, in the same iteration
+	 * order as the given collection.
+	 */
+	public static Map<Product, LicenseValidationResult> validateAll(Collection<Product> products) {
+		Args.notNull(products, "Products to validate");
+
+		Map<List<Object>, List<Product>> productsPerServer = new LinkedHashMap<List<Object>, List<Product>>();
+		for (Product product : products) {
+			List<Object> server = licenseServerKey(product);
+			List<Product> group = productsPerServer.get(server);
+			if (group == null) {
+				group = new ArrayList<Product>();
+				productsPerServer.put(server, group);
+			}
+			group.add(product);
 		}
-		return licenseManager;
+
+		Map<Product, LicenseValidationResult> results = new HashMap<Product, LicenseValidationResult>();
+		for (List<Product> group : productsPerServer.values()) {
+			results.putAll(group.get(0).licenseManager().validateAll(group));
+		}
+
+		Map<Product, LicenseValidationResult> out = new LinkedHashMap<Product, LicenseValidationResult>();
+		for (Product product : products) {
+			out.put(product, results.get(product));
+		}
+		return out;
+	}
+
+	/**
+	 * Returns a value that is equal for products that synchronize with the same license server, through the same
+	 * proxy and with equal connection settings.
+	 */
+	private static List<Object> licenseServerKey(Product product) {
+		LicenseManager manager = product.licenseManager();
+		String domain = product.store == null ? null : product.store.licenseServerDomain();
+		return Arrays.<Object>asList(domain, manager.getProxy(), manager.getProxyHost(), manager.getProxyPort(), manager.getProxyUser(), manager.getConnectionSettings());
 	}
 
 	@Override
@@ -135,22 +337,17 @@ public class Product {
 
 		Product product = (Product) o;
 
+		if (hashCode != product.hashCode) return false;
 		if (!id.equals(product.id)) return false;
 		if (!name.equals(product.name)) return false;
-		if (!publicKey.equals(product.publicKey)) return false;
-		if (variant != null ? !variant.equals(product.variant) : product.variant != null) return false;
+		if (!variant.equals(product.variant)) return false;
 		if (!version.equals(product.version)) return false;
-		return store.equals(product.store);
+		if (store != null ? !store.equals(product.store) : product.store != null) return false;
+		return publicKey.equals(product.publicKey);
 	}
 
 	@Override
 	public int hashCode() {
-		int result = id.hashCode();
-		result = 31 * result + name.hashCode();
-		result = 31 * result + publicKey.hashCode();
-		result = 31 * result + (variant != null ? variant.hashCode() : 0);
-		result = 31 * result + version.hashCode();
-		result = 31 * result + store.hashCode();
-		return result;
+		return hashCode;
 	}
 }
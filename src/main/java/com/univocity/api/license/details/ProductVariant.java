@@ -9,15 +9,20 @@ package com.univocity.api.license.details;
 
 import com.univocity.api.common.*;
 
+import java.util.*;
+
 /**
  * Provides the essential information required from a product variant
  */
 public final class ProductVariant {
 
-	public static final ProductVariant LICENSE_PROVIDED = new ProductVariant(0L);
+	private static final Interner<ProductVariant> interner = new Interner<ProductVariant>();
+
+	public static final ProductVariant LICENSE_PROVIDED = new ProductVariant(0L).intern();
 
 	private final String description;
 	private final Long id;
+	private final int hashCode;
 
 	/**
 	 * Builds a new variant, with ID and description, for a given product
@@ -30,6 +35,7 @@ public final class ProductVariant {
 
 		this.id = id;
 		this.description = description == null ? "" : description.trim();
+		this.hashCode = 31 * this.description.hashCode() + id.hashCode();
 	}
 
 	/**
@@ -42,6 +48,17 @@ public final class ProductVariant {
 
 		this.id = id;
 		this.description = "";
+		this.hashCode = 31 * this.description.hashCode() + id.hashCode();
+	}
+
+	/**
+	 * Returns a canonical representation of this variant. Equal variants resolve to the same instance, so they can be
+	 * compared by reference.
+	 *
+	 * @return the canonical instance equal to this variant.
+	 */
+	public final ProductVariant intern() {
+		return interner.intern(stateKey(), this);
 	}
 
 
@@ -71,6 +88,15 @@ public final class ProductVariant {
 		return super.toString();
 	}
 
+	/**
+	 * Returns a value that is equal for variants with the same ID and description.
+	 *
+	 * @return the key of the whole state of this variant.
+	 */
+	final List<Object> stateKey() {
+		return Arrays.<Object>asList(id, description);
+	}
+
 	@Override
 	public final boolean equals(Object o) {
 		if (this == o) return true;
@@ -78,14 +104,13 @@ public final class ProductVariant {
 
 		ProductVariant that = (ProductVariant) o;
 
+		if (hashCode != that.hashCode) return false;
 		if (!description.equals(that.description)) return false;
 		return id.equals(that.id);
 	}
 
 	@Override
 	public final int hashCode() {
-		int result = description.hashCode();
-		result = 31 * result + id.hashCode();
-		return result;
+		return hashCode;
 	}
 }
@@ -19,6 +19,11 @@ public final class ProductVersion {
 	private final String formattedReleaseDate;
 	private final String identifier;
 	private final Calendar releaseDate;
+	private final int releaseEpochDay;
+	private final long releaseEpochMillis;
+	private final int hashCode;
+
+	private static final Interner<ProductVersion> interner = new Interner<ProductVersion>();
 
 	/**
 	 * Builds a new product version, with ID and release date, for a given product variant instance
@@ -33,8 +38,21 @@ public final class ProductVersion {
 		releaseDate = releaseDate.trim();
 
 		this.releaseDate = Args.isoDateStringToCalendar(releaseDate);
+		this.releaseEpochDay = EpochDays.of(this.releaseDate);
+		this.releaseEpochMillis = this.releaseDate.getTimeInMillis();
 		this.identifier = versionIdentifier;
 		this.formattedReleaseDate = releaseDate;
+		this.hashCode = versionIdentifier.hashCode();
+	}
+
+	/**
+	 * Returns a canonical representation of this version. Versions with the same identifier and release date resolve
+	 * to the same instance, so they can be compared by reference.
+	 *
+	 * @return the canonical instance with the same state as this version.
+	 */
+	public final ProductVersion intern() {
+		return interner.intern(stateKey(), this);
 	}
 
 	/**
@@ -55,6 +73,25 @@ public final class ProductVersion {
 		return releaseDate;
 	}
 
+	/**
+	 * Returns the release date of the current product version as an epoch day. Unlike {@link #releaseDate()},
+	 * the value returned can't be modified by callers and can be compared directly with other dates.
+	 *
+	 * @return the number of days elapsed from {@code 1970-01-01} until the release date of the current product version.
+	 */
+	public final int releaseEpochDay() {
+		return releaseEpochDay;
+	}
+
+	/**
+	 * Returns the release date of the current product version, in milliseconds since the epoch.
+	 *
+	 * @return the instant represented by {@link #releaseDate()} when this version object was created.
+	 */
+	public final long releaseEpochMillis() {
+		return releaseEpochMillis;
+	}
+
 	/**
 	 * Returns the release date of the current product version formatted as {@code "yyyy-MM-dd"}.
 	 *
@@ -69,6 +106,16 @@ public final class ProductVersion {
 		return identifier;
 	}
 
+	/**
+	 * Returns a value that is equal for versions with the same identifier and release date. Unlike
+	 * {@link #equals(Object)}, which ignores the release date, this key captures the whole state of the version.
+	 *
+	 * @return the key of the whole state of this version.
+	 */
+	final List<Object> stateKey() {
+		return Arrays.<Object>asList(identifier, releaseEpochDay);
+	}
+
 	@Override
 	public final boolean equals(Object o) {
 		if (this == o) return true;
@@ -76,11 +123,12 @@ public final class ProductVersion {
 
 		ProductVersion that = (ProductVersion) o;
 
+		if (hashCode != that.hashCode) return false;
 		return identifier.equals(that.identifier);
 	}
 
 	@Override
 	public final int hashCode() {
-		return identifier.hashCode();
+		return hashCode;
 	}
 }
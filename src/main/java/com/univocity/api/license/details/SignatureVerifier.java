@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import com.univocity.api.common.*;
+
+import java.nio.*;
+import java.security.*;
+import java.security.spec.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Verifies signatures produced with the private key associated with the public key of a {@link Product}.
+ *
+ * The public key is decoded only once, and initialized {@link Signature} instances are kept in a bounded pool and
+ * reused, so that repeated verifications don't parse keys or allocate new {@link Signature} objects. Instances of
+ * this class are thread-safe and cached per product by {@link Product#signatureVerifier(String)}.
+ */
+public final class SignatureVerifier {
+
+	private static final int MAX_POOLED = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+	private final PublicKey publicKey;
+	private final String algorithm;
+
+	private final Queue<Signature> pool = new ConcurrentLinkedQueue<Signature>();
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	/**
+	 * Creates a verifier of signatures produced with a given algorithm.
+	 *
+	 * @param publicKey the public key used to verify signatures
+	 * @param algorithm the signature algorithm, as accepted by {@link Signature#getInstance(String)},
+	 *                  e.g. {@code "SHA256withRSA"}
+	 *
+	 * @throws IllegalArgumentException if the given algorithm is not supported
+	 */
+	public SignatureVerifier(PublicKey publicKey, String algorithm) {
+		Args.notNull(publicKey, "Public key");
+		Args.notBlank(algorithm, "Signature algorithm");
+
+		this.publicKey = publicKey;
+		this.algorithm = algorithm;
+
+		release(newSignature());
+	}
+
+	/**
+	 * Decodes a public key provided as a Base64 {@code String} with the X.509 encoding of the key, optionally
+	 * enclosed in PEM {@code "-----BEGIN PUBLIC KEY-----"} and {@code "-----END PUBLIC KEY-----"} markers, on separate
+	 * lines or not. Keys without markers may use the URL-safe Base64 alphabet. RSA, EC and DSA keys are supported.
+	 *
+	 * @param publicKey the encoded public key
+	 *
+	 * @return the decoded public key.
+	 *
+	 * @throws IllegalArgumentException if the given {@code String} is not a valid public key
+	 */
+	public static PublicKey decodePublicKey(String publicKey) {
+		Args.notBlank(publicKey, "Public key");
+
+		X509EncodedKeySpec spec = new X509EncodedKeySpec(decodeBase64(publicKey));
+		for (String keyAlgorithm : new String[]{"RSA", "EC", "DSA"}) {
+			try {
+				return KeyFactory.getInstance(keyAlgorithm).generatePublic(spec);
+			} catch (NoSuchAlgorithmException e) {
+				// algorithm not available in this JVM, try the next one
+			} catch (InvalidKeySpecException e) {
+				// not a key of this algorithm, try the next one
+			}
+		}
+		throw new IllegalArgumentException("Unable to decode public key. Expected a Base64-encoded X.509 RSA, EC or DSA public key");
+	}
+
+	/**
+	 * Decodes Base64 content, optionally enclosed in PEM markers. The standard and the URL-safe alphabets are both
+	 * accepted, but can't be mixed, and PEM content must use the standard alphabet. Padding is optional, but must be
+	 * complete if present.
+	 *
+	 * @param value the Base64 content
+	 *
+	 * @return the decoded bytes.
+	 *
+	 * @throws IllegalArgumentException if the content is not valid Base64 or has malformed PEM markers.
+	 */
+	static byte[] decodeBase64(String value) {
+		boolean pem = false;
+		int start = value.indexOf("-----BEGIN");
+		if (start >= 0) {
+			int headerEnd = value.indexOf("-----", start + 10);
+			int end = headerEnd < 0 ? -1 : value.indexOf("-----END", headerEnd + 5);
+			if (end < 0) {
+				throw new IllegalArgumentException("Malformed PEM-encoded public key. Expected '-----BEGIN ...-----' and '-----END ...-----' markers");
+			}
+			value = value.substring(headerEnd + 5, end);
+			pem = true;
+		}
+
+		byte[] out = new byte[value.length() * 3 / 4 + 3];
+		int length = 0;
+		int buffer = 0;
+		int bits = 0;
+		int digits = 0;
+		int padding = 0;
+		char alphabet = 0; // '+' for the standard alphabet, '-' for the URL-safe alphabet
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			int digit;
+			if (Character.isWhitespace(ch)) {
+				continue;
+			} else if (ch == '=') {
+				padding++;
+				continue;
+			} else if (padding > 0) {
+				throw new IllegalArgumentException("Invalid character '" + ch + "' after padding in Base64-encoded public key");
+			} else if (ch >= 'A' && ch <= 'Z') {
+				digit = ch - 'A';
+			} else if (ch >= 'a' && ch <= 'z') {
+				digit = ch - 'a' + 26;
+			} else if (ch >= '0' && ch <= '9') {
+				digit = ch - '0' + 52;
+			} else if (ch == '+' || ch == '/' || ((ch == '-' || ch == '_') && !pem)) {
+				char charAlphabet = ch == '+' || ch == '/' ? '+' : '-';
+				if (alphabet == 0) {
+					alphabet = charAlphabet;
+				} else if (alphabet != charAlphabet) {
+					throw new IllegalArgumentException("Base64-encoded public key mixes the standard and URL-safe alphabets");
+				}
+				digit = ch == '+' || ch == '-' ? 62 : 63;
+			} else {
+				throw new IllegalArgumentException("Invalid character '" + ch + "' in Base64-encoded public key");
+			}
+			buffer = (buffer << 6) | digit;
+			bits += 6;
+			digits++;
+			if (bits >= 8) {
+				bits -= 8;
+				out[length++] = (byte) (buffer >> bits);
+			}
+		}
+		if (digits == 0) {
+			throw new IllegalArgumentException("Base64-encoded public key is empty");
+		}
+		if (digits % 4 == 1 || padding > 2 || (padding > 0 && (digits + padding) % 4 != 0)) {
+			throw new IllegalArgumentException("Invalid length of Base64-encoded public key");
+		}
+		return Arrays.copyOf(out, length);
+	}
+
+	private Signature newSignature() {
+		try {
+			Signature signature = Signature.getInstance(algorithm);
+			signature.initVerify(publicKey);
+			return signature;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Signature algorithm '" + algorithm + "' is not supported", e);
+		} catch (InvalidKeyException e) {
+			throw new IllegalArgumentException("Public key can't be used with signature algorithm '" + algorithm + "'", e);
+		}
+	}
+
+	private Signature acquire() {
+		Signature signature = pool.poll();
+		if (signature == null) {
+			return newSignature();
+		}
+		pooled.decrementAndGet();
+		return signature;
+	}
+
+	private void release(Signature signature) {
+		if (pooled.incrementAndGet() <= MAX_POOLED) {
+			pool.offer(signature);
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the decoded public key used by this verifier.
+	 *
+	 * @return the public key.
+	 */
+	public PublicKey publicKey() {
+		return publicKey;
+	}
+
+	/**
+	 * Returns the signature algorithm verified by this verifier.
+	 *
+	 * @return the signature algorithm.
+	 */
+	public String algorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Verifies the signature of the given data.
+	 *
+	 * @param data      the signed data
+	 * @param signature the signature to verify
+	 *
+	 * @return {@code true} if the signature is valid, {@code false} if it's invalid or malformed.
+	 */
+	public boolean verify(byte[] data, byte[] signature) {
+		Args.notNull(data, "Signed data");
+		return verify(data, 0, data.length, signature);
+	}
+
+	/**
+	 * Verifies the signature of a portion of the given data.
+	 *
+	 * @param data      an array with the signed data
+	 * @param offset    the index of the first byte of the signed data
+	 * @param length    the number of bytes of the signed data
+	 * @param signature the signature to verify
+	 *
+	 * @return {@code true} if the signature is valid, {@code false} if it's invalid or malformed.
+	 */
+	public boolean verify(byte[] data, int offset, int length, byte[] signature) {
+		Args.notNull(data, "Signed data");
+		Args.notNull(signature, "Signature");
+
+		Signature verifier = acquire();
+		try {
+			verifier.update(data, offset, length);
+			boolean valid = verifier.verify(signature);
+			release(verifier);
+			return valid;
+		} catch (SignatureException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Verifies the signature of the remaining content of the given buffer. The buffer position is not modified.
+	 *
+	 * @param data      a buffer with the signed data
+	 * @param signature the signature to verify
+	 *
+	 * @return {@code true} if the signature is valid, {@code false} if it's invalid or malformed.
+	 */
+	public boolean verify(ByteBuffer data, byte[] signature) {
+		Args.notNull(data, "Signed data");
+		Args.notNull(signature, "Signature");
+
+		Signature verifier = acquire();
+		try {
+			verifier.update(data.duplicate());
+			boolean valid = verifier.verify(signature);
+			release(verifier);
+			return valid;
+		} catch (SignatureException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return algorithm + " verifier (" + publicKey.getAlgorithm() + " key)";
+	}
+}
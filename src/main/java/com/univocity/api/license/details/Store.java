@@ -9,6 +9,8 @@ package com.univocity.api.license.details;
 
 import com.univocity.api.common.*;
 
+import java.util.*;
+
 /**
  * Information required from a product store to enable license validation - both online and offline.
  */
@@ -17,6 +19,9 @@ public final class Store {
 	private final String name;
 	private final Long id;
 	private final String licenseServerDomain;
+	private final int hashCode;
+
+	private static final Interner<Store> interner = new Interner<Store>();
 
 	/**
 	 * Creates a new store details object, with ID, name and list of servers used for license validation.
@@ -36,6 +41,17 @@ public final class Store {
 		licenseServerDomain = clearDomainName(licenseServerDomain);
 
 		this.licenseServerDomain = licenseServerDomain;
+		this.hashCode = 31 * name.hashCode() + id.hashCode();
+	}
+
+	/**
+	 * Returns a canonical representation of this store. Stores with the same ID, name and license server domain
+	 * resolve to the same instance, so they can be compared by reference.
+	 *
+	 * @return the canonical instance with the same state as this store.
+	 */
+	public final Store intern() {
+		return interner.intern(stateKey(), this);
 	}
 
 	private static String clearDomainName(String value) {
@@ -90,6 +106,16 @@ public final class Store {
 		return licenseServerDomain;
 	}
 
+	/**
+	 * Returns a value that is equal for stores with the same ID, name and license server domain. Unlike
+	 * {@link #equals(Object)}, which ignores the license server domain, this key captures the whole state of the store.
+	 *
+	 * @return the key of the whole state of this store.
+	 */
+	final List<Object> stateKey() {
+		return Arrays.<Object>asList(id, name, licenseServerDomain);
+	}
+
 	@Override
 	public final boolean equals(Object o) {
 		if (this == o) return true;
@@ -97,14 +123,13 @@ public final class Store {
 
 		Store that = (Store) o;
 
+		if (hashCode != that.hashCode) return false;
 		if (!name.equals(that.name)) return false;
 		return id.equals(that.id);
 	}
 
 	@Override
 	public final int hashCode() {
-		int result = name.hashCode();
-		result = 31 * result + id.hashCode();
-		return result;
+		return hashCode;
 	}
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.metrics;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+
+/**
+ * Receives the outcome and duration of each operation performed by a {@link LicenseManager}, to allow applications
+ * to collect metrics or trace license operations with the tools of their choice.
+ *
+ * License managers only measure durations and invoke {@link #operationCompleted(Product, LicenseOperation, LicenseValidationResult, long)}
+ * if {@link #isEnabled()} returns {@code true}, therefore the default {@link #DISABLED} instance adds no overhead.
+ *
+ * Implementations must be thread-safe and return quickly, as they are invoked by the threads performing license
+ * operations, including threads calling {@link LicenseManager#validate()}.
+ *
+ * @see LicenseManager#setMetrics(LicenseMetrics)
+ * @see LicenseStatistics
+ */
+public interface LicenseMetrics {
+
+	/**
+	 * A {@code LicenseMetrics} that ignores everything. Used by default by all license managers.
+	 */
+	LicenseMetrics DISABLED = new LicenseMetrics() {
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void operationCompleted(Product product, LicenseOperation operation, LicenseValidationResult result, long elapsedNanos) {
+		}
+
+		@Override
+		public String toString() {
+			return "DISABLED";
+		}
+	};
+
+	/**
+	 * Indicates whether license operations should be measured and reported to this object.
+	 *
+	 * @return {@code true} if {@link #operationCompleted(Product, LicenseOperation, LicenseValidationResult, long)}
+	 * should be invoked after each license operation, otherwise {@code false}.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Notifies that a license operation completed.
+	 *
+	 * @param product      the product whose license was processed.
+	 * @param operation    the operation performed.
+	 * @param result       the result of the operation. Operations that fail with a
+	 *                     {@link LicenseRegistrationException} report {@link LicenseRegistrationException#getValidationResult()},
+	 *                     while operations that complete without a validation result (such as a successful
+	 *                     {@link LicenseOperation#RELEASE_LICENSE}) report {@link LicenseValidationResult#VALID}.
+	 * @param elapsedNanos the time taken by the operation, in nanoseconds.
+	 */
+	void operationCompleted(Product product, LicenseOperation operation, LicenseValidationResult result, long elapsedNanos);
+}
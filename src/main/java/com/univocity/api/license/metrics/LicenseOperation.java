@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.metrics;
+
+import com.univocity.api.license.*;
+
+/**
+ * The operations performed by a {@link LicenseManager} that are reported to {@link LicenseMetrics}.
+ */
+public enum LicenseOperation {
+
+	/**
+	 * Offline validation that required reading the local license store, performed by
+	 * {@link LicenseManager#validate()} and its variants.
+	 */
+	VALIDATE,
+
+	/**
+	 * Offline validation answered from the in-memory validation cache, without reading the local license store.
+	 */
+	VALIDATE_CACHED,
+
+	/**
+	 * Synchronization of the local license with the license server, performed in the background after a validation.
+	 */
+	REMOTE_SYNC,
+
+	/**
+	 * License assignment performed by {@link LicenseManager#assignLicense(String, String)} and its variants.
+	 */
+	ASSIGN_LICENSE,
+
+	/**
+	 * Trial license assignment performed by {@link LicenseManager#assignTrial(String, String, String)}.
+	 */
+	ASSIGN_TRIAL,
+
+	/**
+	 * License release performed by {@link LicenseManager#releaseLicense()}.
+	 */
+	RELEASE_LICENSE
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.metrics;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A dependency-free {@link LicenseMetrics} implementation that keeps, for each {@link LicenseOperation} and
+ * {@link LicenseValidationResult}, the number of operations performed, their total duration, and a histogram of
+ * their durations.
+ *
+ * Histogram buckets grow in powers of two: bucket {@code i} counts the operations that took less than
+ * {@code 2^i} nanoseconds and at least {@code 2^(i-1)} nanoseconds. Recording an operation takes three atomic
+ * increments and never locks.
+ *
+ * A single instance can be shared by the license managers of multiple products.
+ */
+public final class LicenseStatistics implements LicenseMetrics {
+
+	/**
+	 * Number of buckets of each latency histogram.
+	 */
+	public static final int BUCKETS = 64;
+
+	private static final int OPERATIONS = LicenseOperation.values().length;
+	private static final int RESULTS = LicenseValidationResult.values().length;
+
+	private final AtomicLongArray counts = new AtomicLongArray(OPERATIONS * RESULTS);
+	private final AtomicLongArray totalNanos = new AtomicLongArray(OPERATIONS * RESULTS);
+	private final AtomicLongArray histograms = new AtomicLongArray(OPERATIONS * RESULTS * BUCKETS);
+
+	private volatile boolean enabled = true;
+
+	private static int index(LicenseOperation operation, LicenseValidationResult result) {
+		return operation.ordinal() * RESULTS + result.ordinal();
+	}
+
+	private static int bucket(long elapsedNanos) {
+		if (elapsedNanos <= 0L) {
+			return 0;
+		}
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(elapsedNanos));
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the collection of statistics. Statistics collected so far are preserved.
+	 *
+	 * @param enabled flag indicating whether statistics should be collected.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void operationCompleted(Product product, LicenseOperation operation, LicenseValidationResult result, long elapsedNanos) {
+		int index = index(operation, result);
+		counts.incrementAndGet(index);
+		totalNanos.addAndGet(index, elapsedNanos);
+		histograms.incrementAndGet(index * BUCKETS + bucket(elapsedNanos));
+	}
+
+	/**
+	 * Returns the number of operations of a given type that completed with a given result.
+	 *
+	 * @param operation the type of operation
+	 * @param result    the result of the operation
+	 *
+	 * @return the number of operations recorded.
+	 */
+	public long getCount(LicenseOperation operation, LicenseValidationResult result) {
+		return counts.get(index(operation, result));
+	}
+
+	/**
+	 * Returns the number of operations of a given type, regardless of their result.
+	 *
+	 * @param operation the type of operation
+	 *
+	 * @return the number of operations recorded.
+	 */
+	public long getCount(LicenseOperation operation) {
+		long total = 0L;
+		for (LicenseValidationResult result : LicenseValidationResult.values()) {
+			total += getCount(operation, result);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the total time spent on operations of a given type that completed with a given result.
+	 *
+	 * @param operation the type of operation
+	 * @param result    the result of the operation
+	 *
+	 * @return the sum of the durations of all operations recorded, in nanoseconds.
+	 */
+	public long getTotalNanos(LicenseOperation operation, LicenseValidationResult result) {
+		return totalNanos.get(index(operation, result));
+	}
+
+	/**
+	 * Returns a copy of the latency histogram of operations of a given type that completed with a given result.
+	 *
+	 * @param operation the type of operation
+	 * @param result    the result of the operation
+	 *
+	 * @return an array of {@link #BUCKETS} elements, where the element at index {@code i} holds the number of
+	 * operations that took less than {@code 2^i} nanoseconds and at least {@code 2^(i-1)} nanoseconds.
+	 */
+	public long[] getHistogram(LicenseOperation operation, LicenseValidationResult result) {
+		int start = index(operation, result) * BUCKETS;
+		long[] out = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			out[i] = histograms.get(start + i);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns an upper bound of the duration of a given percentile of the operations of a given type that completed
+	 * with a given result. The value is accurate to within a factor of two.
+	 *
+	 * @param operation  the type of operation
+	 * @param result     the result of the operation
+	 * @param percentile the percentile to obtain, between {@code 0.0} and {@code 100.0}
+	 *
+	 * @return the maximum duration, in nanoseconds, of the given percentile of operations, or {@code 0} if no
+	 * operations were recorded.
+	 */
+	public long getPercentileNanos(LicenseOperation operation, LicenseValidationResult result, double percentile) {
+		if (percentile < 0.0 || percentile > 100.0) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100. Got " + percentile);
+		}
+		long[] histogram = getHistogram(operation, result);
+		long total = 0L;
+		for (long count : histogram) {
+			total += count;
+		}
+		if (total == 0L) {
+			return 0L;
+		}
+		long threshold = (long) Math.ceil(total * (percentile / 100.0));
+		long accumulated = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			accumulated += histogram[i];
+			if (accumulated >= threshold && accumulated > 0L) {
+				return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1L;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Discards all statistics collected so far.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0L);
+			totalNanos.set(i, 0L);
+		}
+		for (int i = 0; i < histograms.length(); i++) {
+			histograms.set(i, 0L);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		for (LicenseOperation operation : LicenseOperation.values()) {
+			for (LicenseValidationResult result : LicenseValidationResult.values()) {
+				long count = getCount(operation, result);
+				if (count > 0L) {
+					if (out.length() > 0) {
+						out.append('\n');
+					}
+					out.append(operation).append(' ').append(result).append(": count=").append(count);
+					out.append(", avg=").append(getTotalNanos(operation, result) / count).append("ns");
+					out.append(", p99<=").append(getPercentileNanos(operation, result, 99.0)).append("ns");
+				}
+			}
+		}
+		return out.toString();
+	}
+}
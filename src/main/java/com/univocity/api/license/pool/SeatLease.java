@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.pool;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+
+/**
+ * A seat leased from a floating license pool (see {@link License#getLicensePoolName()}).
+ *
+ * A lease is held for a limited time and must be renewed before it expires. Seats of leases that are not renewed,
+ * e.g. leases held by nodes that crashed, are reclaimed by the pool once their leases expire, so they never have to be
+ * released manually.
+ *
+ * Instances are immutable: renewing a lease produces a new {@code SeatLease} with the same {@link #leaseId()} and a
+ * later {@link #expiration()}.
+ *
+ * @see LicenseManager#acquireSeat(long, java.util.concurrent.TimeUnit)
+ * @see SeatPool
+ */
+public final class SeatLease {
+
+	private final String poolName;
+	private final String leaseId;
+	private final String nodeId;
+	private final long expiration;
+	private final LicenseValidationResult result;
+
+	/**
+	 * Creates a new seat lease.
+	 *
+	 * @param poolName   the name of the license pool
+	 * @param leaseId    the identifier of the lease, or {@code null} if no seat was leased.
+	 * @param nodeId     the identifier of the node holding the lease
+	 * @param expiration the time the lease expires, in milliseconds since the epoch.
+	 * @param result     the outcome of the operation that produced this lease: {@link LicenseValidationResult#VALID}
+	 *                   if a seat is held, or the reason why it isn't.
+	 */
+	public SeatLease(String poolName, String leaseId, String nodeId, long expiration, LicenseValidationResult result) {
+		Args.notBlank(poolName, "License pool name");
+		Args.notNull(result, "Lease result");
+		if (result == LicenseValidationResult.VALID && leaseId == null) {
+			throw new IllegalArgumentException("Lease identifier required for valid leases");
+		}
+		this.poolName = poolName;
+		this.leaseId = leaseId;
+		this.nodeId = nodeId;
+		this.expiration = expiration;
+		this.result = result;
+	}
+
+	/**
+	 * Creates a lease that represents the failure to lease a seat.
+	 *
+	 * @param poolName the name of the license pool
+	 * @param nodeId   the identifier of the node that requested the lease
+	 * @param result   the reason why no seat is held, e.g. {@link LicenseValidationResult#NO_MORE_LICENSES}
+	 *
+	 * @return a lease that holds no seat.
+	 */
+	public static SeatLease rejected(String poolName, String nodeId, LicenseValidationResult result) {
+		return new SeatLease(poolName, null, nodeId, 0L, result);
+	}
+
+	/**
+	 * Returns the name of the license pool this lease belongs to.
+	 *
+	 * @return the license pool name.
+	 */
+	public final String poolName() {
+		return poolName;
+	}
+
+	/**
+	 * Returns the identifier of this lease, used to renew and release it.
+	 *
+	 * @return the lease identifier, or {@code null} if no seat was leased.
+	 */
+	public final String leaseId() {
+		return leaseId;
+	}
+
+	/**
+	 * Returns the identifier of the node holding this lease.
+	 *
+	 * @return the node identifier.
+	 */
+	public final String nodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Returns the time this lease expires, after which its seat can be leased by other nodes.
+	 *
+	 * @return the expiration time, in milliseconds since the epoch.
+	 */
+	public final long expiration() {
+		return expiration;
+	}
+
+	/**
+	 * Returns the outcome of the operation that produced this lease.
+	 *
+	 * @return {@link LicenseValidationResult#VALID} if a seat is held, {@link LicenseValidationResult#NO_MORE_LICENSES}
+	 * if all seats of the pool are leased, {@link LicenseValidationResult#NOT_FOUND} if the lease expired or was
+	 * released, or any other result produced by the license server.
+	 */
+	public final LicenseValidationResult result() {
+		return result;
+	}
+
+	/**
+	 * Indicates whether this lease holds a seat at the given time.
+	 *
+	 * @param now the current time, in milliseconds since the epoch.
+	 *
+	 * @return {@code true} if the lease was granted and has not expired.
+	 */
+	public final boolean isValid(long now) {
+		return result == LicenseValidationResult.VALID && now < expiration;
+	}
+
+	/**
+	 * Indicates whether this lease currently holds a seat.
+	 *
+	 * @return {@code true} if the lease was granted and has not expired.
+	 */
+	public final boolean isValid() {
+		return isValid(System.currentTimeMillis());
+	}
+
+	@Override
+	public final String toString() {
+		if (leaseId == null) {
+			return "Seat of pool '" + poolName + "' not leased: " + result;
+		}
+		if (result != LicenseValidationResult.VALID) {
+			return "Seat lease " + leaseId + " of pool '" + poolName + "' not held: " + result;
+		}
+		return "Seat lease " + leaseId + " of pool '" + poolName + "' held by " + nodeId + " until " + new java.util.Date(expiration);
+	}
+
+	@Override
+	public final boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		SeatLease that = (SeatLease) o;
+
+		if (expiration != that.expiration) return false;
+		if (!poolName.equals(that.poolName)) return false;
+		if (leaseId != null ? !leaseId.equals(that.leaseId) : that.leaseId != null) return false;
+		if (nodeId != null ? !nodeId.equals(that.nodeId) : that.nodeId != null) return false;
+		return result == that.result;
+	}
+
+	@Override
+	public final int hashCode() {
+		int result = poolName.hashCode();
+		result = 31 * result + (leaseId != null ? leaseId.hashCode() : 0);
+		result = 31 * result + (nodeId != null ? nodeId.hashCode() : 0);
+		result = 31 * result + (int) (expiration ^ (expiration >>> 32));
+		result = 31 * result + this.result.hashCode();
+		return result;
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.pool;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+
+/**
+ * A floating license pool that leases a fixed number of seats to nodes for a limited time. Used by license servers,
+ * such as the {@code StubLicenseServer}, to implement seat leasing.
+ *
+ * Seat accounting is lock-free: the number of free seats is a single atomic counter, and each lease holds its own
+ * atomic expiration time, so renewals of different leases never contend with each other. A lease is released,
+ * or reclaimed after it expires, by exactly one thread, which atomically marks it as released and returns its seat
+ * to the pool.
+ *
+ * Expired leases are reclaimed when a seat is requested while the pool is full (at most once every
+ * {@link #RECLAIM_INTERVAL_MILLIS} milliseconds), or explicitly with {@link #reclaimExpired()}.
+ */
+public final class SeatPool {
+
+	/**
+	 * Minimum interval between scans for expired leases triggered by seat requests on a full pool, in milliseconds.
+	 */
+	public static final long RECLAIM_INTERVAL_MILLIS = 100L;
+
+	private static final long RETURNED = Long.MIN_VALUE;
+
+	private final String poolName;
+	private final int capacity;
+
+	private final AtomicInteger available;
+	private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<String, Lease>();
+	private final AtomicLong nextReclaim = new AtomicLong();
+
+	private static final class Lease {
+		final String nodeId;
+		final AtomicLong expiration;
+
+		Lease(String nodeId, long expiration) {
+			this.nodeId = nodeId;
+			this.expiration = new AtomicLong(expiration);
+		}
+	}
+
+	/**
+	 * Creates a new license pool.
+	 *
+	 * @param poolName the name of the pool (see {@link License#getLicensePoolName()})
+	 * @param capacity the number of seats that can be leased at the same time.
+	 */
+	public SeatPool(String poolName, int capacity) {
+		Args.notBlank(poolName, "License pool name");
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("License pool capacity must be positive. Got " + capacity);
+		}
+		this.poolName = poolName;
+		this.capacity = capacity;
+		this.available = new AtomicInteger(capacity);
+	}
+
+	/**
+	 * Leases a seat.
+	 *
+	 * @param nodeId the identifier of the node requesting the seat
+	 * @param ttl    the time the seat will be held if not renewed
+	 * @param unit   the time unit of the ttl
+	 *
+	 * @return a lease with result {@link LicenseValidationResult#VALID} if a seat was leased, or
+	 * {@link LicenseValidationResult#NO_MORE_LICENSES} if all seats are leased.
+	 */
+	public SeatLease acquire(String nodeId, long ttl, TimeUnit unit) {
+		Args.notBlank(nodeId, "Node identifier");
+		long duration = ttlMillis(ttl, unit);
+
+		if (!takeSeat()) {
+			long now = System.currentTimeMillis();
+			long next = nextReclaim.get();
+			if (now < next || !nextReclaim.compareAndSet(next, now + RECLAIM_INTERVAL_MILLIS) || reclaimExpired(now) == 0 || !takeSeat()) {
+				return SeatLease.rejected(poolName, nodeId, NO_MORE_LICENSES);
+			}
+		}
+
+		long expiration = expiration(System.currentTimeMillis(), duration);
+		String leaseId = UUID.randomUUID().toString();
+		leases.put(leaseId, new Lease(nodeId, expiration));
+		return new SeatLease(poolName, leaseId, nodeId, expiration, VALID);
+	}
+
+	/**
+	 * Extends a lease. Renewals of an expired lease fail even if its seat has not been reclaimed yet.
+	 *
+	 * @param leaseId the identifier of the lease (see {@link SeatLease#leaseId()})
+	 * @param ttl     the time the seat will be held from now if not renewed again
+	 * @param unit    the time unit of the ttl
+	 *
+	 * @return the renewed lease with result {@link LicenseValidationResult#VALID}, or a lease with result
+	 * {@link LicenseValidationResult#NOT_FOUND} if the lease expired or was released.
+	 */
+	public SeatLease renew(String leaseId, long ttl, TimeUnit unit) {
+		Args.notBlank(leaseId, "Lease identifier");
+		long duration = ttlMillis(ttl, unit);
+
+		Lease lease = leases.get(leaseId);
+		if (lease == null) {
+			return SeatLease.rejected(poolName, null, NOT_FOUND);
+		}
+		while (true) {
+			long now = System.currentTimeMillis();
+			long expiration = lease.expiration.get();
+			if (expiration == RETURNED) {
+				return SeatLease.rejected(poolName, lease.nodeId, NOT_FOUND);
+			}
+			if (now >= expiration) {
+				reclaim(leaseId, lease, expiration);
+				return SeatLease.rejected(poolName, lease.nodeId, NOT_FOUND);
+			}
+			long renewed = expiration(now, duration);
+			if (lease.expiration.compareAndSet(expiration, renewed)) {
+				return new SeatLease(poolName, leaseId, lease.nodeId, renewed, VALID);
+			}
+		}
+	}
+
+	/**
+	 * Releases a lease, returning its seat to the pool. Does nothing if the lease was already released or its seat
+	 * was reclaimed.
+	 *
+	 * @param leaseId the identifier of the lease (see {@link SeatLease#leaseId()})
+	 *
+	 * @return {@link LicenseValidationResult#RELEASED} if the seat was released, or
+	 * {@link LicenseValidationResult#NOT_FOUND} if the lease was already released or reclaimed.
+	 */
+	public LicenseValidationResult release(String leaseId) {
+		Args.notBlank(leaseId, "Lease identifier");
+
+		Lease lease = leases.get(leaseId);
+		if (lease == null) {
+			return NOT_FOUND;
+		}
+		while (true) {
+			long expiration = lease.expiration.get();
+			if (expiration == RETURNED) {
+				return NOT_FOUND;
+			}
+			if (reclaim(leaseId, lease, expiration)) {
+				return RELEASED;
+			}
+		}
+	}
+
+	/**
+	 * Returns the seats of all expired leases to the pool.
+	 *
+	 * @return the number of seats reclaimed.
+	 */
+	public int reclaimExpired() {
+		return reclaimExpired(System.currentTimeMillis());
+	}
+
+	private int reclaimExpired(long now) {
+		int reclaimed = 0;
+		for (Map.Entry<String, Lease> e : leases.entrySet()) {
+			long expiration = e.getValue().expiration.get();
+			if (expiration != RETURNED && now >= expiration && reclaim(e.getKey(), e.getValue(), expiration)) {
+				reclaimed++;
+			}
+		}
+		return reclaimed;
+	}
+
+	private boolean reclaim(String leaseId, Lease lease, long expectedExpiration) {
+		if (lease.expiration.compareAndSet(expectedExpiration, RETURNED)) {
+			leases.remove(leaseId, lease);
+			available.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	private boolean takeSeat() {
+		while (true) {
+			int free = available.get();
+			if (free <= 0) {
+				return false;
+			}
+			if (available.compareAndSet(free, free - 1)) {
+				return true;
+			}
+		}
+	}
+
+	private static long ttlMillis(long ttl, TimeUnit unit) {
+		Args.notNull(unit, "Time unit");
+		if (ttl <= 0) {
+			throw new IllegalArgumentException("Lease duration must be positive. Got " + ttl);
+		}
+		return Math.max(1L, unit.toMillis(ttl));
+	}
+
+	// saturates instead of overflowing, so that huge durations such as Long.MAX_VALUE never produce expired leases
+	private static long expiration(long now, long duration) {
+		return duration > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + duration;
+	}
+
+	/**
+	 * Returns the name of this pool.
+	 *
+	 * @return the license pool name.
+	 */
+	public String getPoolName() {
+		return poolName;
+	}
+
+	/**
+	 * Returns the number of seats of this pool.
+	 *
+	 * @return the pool capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of seats that are not leased. Seats of expired leases that have not been reclaimed yet are
+	 * not counted.
+	 *
+	 * @return the number of free seats.
+	 */
+	public int getAvailable() {
+		return available.get();
+	}
+
+	@Override
+	public String toString() {
+		return "License pool '" + poolName + "' (" + available.get() + " of " + capacity + " seats available)";
+	}
+}
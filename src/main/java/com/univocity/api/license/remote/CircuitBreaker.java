@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Prevents requests to a license server that is known to be unavailable. Each license server domain has a single
+ * circuit breaker, shared by all license managers of the process and obtained with {@link #forDomain(String)}.
+ *
+ * The breaker starts {@link State#CLOSED}, allowing all requests. After a number of consecutive failures it
+ * becomes {@link State#OPEN} and rejects all requests for a period given by the exponential backoff of its
+ * {@link RetryPolicy}, with "equal jitter": the period is at least half of the backoff, so that the breaker never
+ * reopens for a negligible time. Once that period elapses, a single probe request is allowed ({@link State#HALF_OPEN}):
+ * if it succeeds the breaker closes, otherwise it opens again for a longer period. If the outcome of the probe is
+ * not recorded within the probe timeout, e.g. because the caller died, another probe is allowed.
+ *
+ * A request is considered failed when it couldn't obtain an answer from the license server, i.e. it produced
+ * {@link LicenseValidationResult#ERROR}. All other results, including invalid licenses, are successful
+ * answers. All operations are lock-free: the whole state of the breaker is an immutable snapshot replaced
+ * atomically, so concurrent callers always observe a consistent state.
+ */
+public final class CircuitBreaker {
+
+	/**
+	 * Number of consecutive failures that open a circuit breaker obtained with {@link #forDomain(String)}.
+	 */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+	/**
+	 * Time, in milliseconds, that a breaker waits for the outcome of a probe request before allowing another probe.
+	 */
+	public static final long DEFAULT_PROBE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+	/**
+	 * The states of a circuit breaker.
+	 */
+	public enum State {
+		/**
+		 * Requests are allowed.
+		 */
+		CLOSED,
+		/**
+		 * Requests are rejected until the backoff period elapses.
+		 */
+		OPEN,
+		/**
+		 * The backoff period elapsed and a single probe request is allowed to test whether the server recovered.
+		 */
+		HALF_OPEN
+	}
+
+	private static final class Snapshot {
+		final int failures;
+		final int openings;
+		final long openUntil;
+		final long probeDeadline;
+
+		Snapshot(int failures, int openings, long openUntil, long probeDeadline) {
+			this.failures = failures;
+			this.openings = openings;
+			this.openUntil = openUntil;
+			this.probeDeadline = probeDeadline;
+		}
+	}
+
+	private static final Snapshot CLOSED_SNAPSHOT = new Snapshot(0, 0, 0L, 0L);
+
+	private static final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+	private final int failureThreshold;
+	private final RetryPolicy backoffPolicy;
+	private final long probeTimeout;
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(CLOSED_SNAPSHOT);
+
+	/**
+	 * Creates a new circuit breaker that waits {@link #DEFAULT_PROBE_TIMEOUT} milliseconds for the outcome of each
+	 * probe request. Use {@link #forDomain(String)} to obtain the breaker shared by all license managers that connect
+	 * to a given license server.
+	 *
+	 * @param failureThreshold the number of consecutive failures that open the breaker.
+	 * @param backoffPolicy    the policy that determines for how long the breaker remains open. The
+	 *                         {@code n}-th consecutive opening lasts between half of and the whole
+	 *                         {@link RetryPolicy#backoff(int) backoffPolicy.backoff(n)} milliseconds.
+	 */
+	public CircuitBreaker(int failureThreshold, RetryPolicy backoffPolicy) {
+		this(failureThreshold, backoffPolicy, DEFAULT_PROBE_TIMEOUT);
+	}
+
+	/**
+	 * Creates a new circuit breaker. Use {@link #forDomain(String)} to obtain the breaker shared by all license
+	 * managers that connect to a given license server.
+	 *
+	 * @param failureThreshold the number of consecutive failures that open the breaker.
+	 * @param backoffPolicy    the policy that determines for how long the breaker remains open. The
+	 *                         {@code n}-th consecutive opening lasts between half of and the whole
+	 *                         {@link RetryPolicy#backoff(int) backoffPolicy.backoff(n)} milliseconds.
+	 * @param probeTimeout     the time to wait for the outcome of a probe request before allowing another probe, in
+	 *                         milliseconds.
+	 */
+	public CircuitBreaker(int failureThreshold, RetryPolicy backoffPolicy, long probeTimeout) {
+		if (failureThreshold <= 0) {
+			throw new IllegalArgumentException("Failure threshold must be positive. Got " + failureThreshold);
+		}
+		Args.notNull(backoffPolicy, "Backoff policy");
+		if (probeTimeout <= 0L) {
+			throw new IllegalArgumentException("Probe timeout must be positive. Got " + probeTimeout);
+		}
+		this.failureThreshold = failureThreshold;
+		this.backoffPolicy = backoffPolicy;
+		this.probeTimeout = probeTimeout;
+	}
+
+	/**
+	 * Returns the circuit breaker shared by all license managers connecting to a given license server domain
+	 * (as given by {@link Store#licenseServerDomain()}). If no breaker exists for the domain, one is created with
+	 * {@link #DEFAULT_FAILURE_THRESHOLD} and {@link RetryPolicy#DEFAULT}.
+	 *
+	 * @param licenseServerDomain the license server domain.
+	 *
+	 * @return the circuit breaker of the given domain.
+	 */
+	public static CircuitBreaker forDomain(String licenseServerDomain) {
+		Args.notBlank(licenseServerDomain, "License server domain");
+		CircuitBreaker breaker = breakers.get(licenseServerDomain);
+		if (breaker == null) {
+			breaker = register(licenseServerDomain, new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, RetryPolicy.DEFAULT));
+		}
+		return breaker;
+	}
+
+	/**
+	 * Returns the circuit breaker shared by all license managers connecting to a given license server domain
+	 * (as given by {@link Store#licenseServerDomain()}), creating it with the given configuration if no breaker
+	 * exists for the domain. Call this method before any license manager connects to the domain to configure its
+	 * breaker.
+	 *
+	 * @param licenseServerDomain the license server domain.
+	 * @param failureThreshold    the number of consecutive failures that open the breaker.
+	 * @param backoffPolicy       the policy that determines for how long the breaker remains open.
+	 *
+	 * @return the circuit breaker of the given domain.
+	 *
+	 * @throws IllegalStateException if the domain already has a breaker with a different failure threshold or backoff
+	 *                               policy.
+	 */
+	public static CircuitBreaker forDomain(String licenseServerDomain, int failureThreshold, RetryPolicy backoffPolicy) {
+		Args.notBlank(licenseServerDomain, "License server domain");
+		CircuitBreaker breaker = breakers.get(licenseServerDomain);
+		if (breaker == null) {
+			breaker = register(licenseServerDomain, new CircuitBreaker(failureThreshold, backoffPolicy));
+		}
+		if (breaker.failureThreshold != failureThreshold || !breaker.backoffPolicy.equals(backoffPolicy)) {
+			throw new IllegalStateException("Circuit breaker of license server domain '" + licenseServerDomain + "' already exists with failure threshold " + breaker.failureThreshold + " and backoff policy " + breaker.backoffPolicy);
+		}
+		return breaker;
+	}
+
+	private static CircuitBreaker register(String licenseServerDomain, CircuitBreaker breaker) {
+		CircuitBreaker existing = breakers.putIfAbsent(licenseServerDomain, breaker);
+		return existing == null ? breaker : existing;
+	}
+
+	/**
+	 * Returns the number of consecutive failures that open this breaker.
+	 *
+	 * @return the failure threshold.
+	 */
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/**
+	 * Returns the policy that determines for how long this breaker remains open.
+	 *
+	 * @return the backoff policy.
+	 */
+	public RetryPolicy getBackoffPolicy() {
+		return backoffPolicy;
+	}
+
+	/**
+	 * Returns the current state of this circuit breaker.
+	 *
+	 * @return the circuit breaker state.
+	 */
+	public State getState() {
+		Snapshot s = snapshot.get();
+		if (s.failures < failureThreshold) {
+			return State.CLOSED;
+		}
+		if (System.currentTimeMillis() < s.openUntil) {
+			return State.OPEN;
+		}
+		return State.HALF_OPEN;
+	}
+
+	/**
+	 * Returns the time remaining until the breaker allows a probe request.
+	 *
+	 * @return the number of milliseconds until the breaker becomes {@link State#HALF_OPEN}, or {@code 0} if
+	 * requests can be made now.
+	 */
+	public long getRemainingOpenTime() {
+		Snapshot s = snapshot.get();
+		if (s.failures < failureThreshold) {
+			return 0L;
+		}
+		return Math.max(0L, s.openUntil - System.currentTimeMillis());
+	}
+
+	/**
+	 * Determines whether a request can be sent to the license server. If this method returns {@code true}, the
+	 * outcome of the request must be reported with {@link #recordResult(LicenseValidationResult)}.
+	 *
+	 * When the breaker is {@link State#HALF_OPEN}, only one caller is allowed to send a probe request. Another probe
+	 * is allowed only if the outcome of the previous one is not recorded within the probe timeout.
+	 *
+	 * @return {@code true} if the request can be made, or {@code false} if the license server should not be
+	 * contacted now.
+	 */
+	public boolean allowRequest() {
+		while (true) {
+			Snapshot s = snapshot.get();
+			if (s.failures < failureThreshold) {
+				return true;
+			}
+			long now = System.currentTimeMillis();
+			if (now < s.openUntil || now < s.probeDeadline) {
+				return false;
+			}
+			if (snapshot.compareAndSet(s, new Snapshot(s.failures, s.openings, s.openUntil, now + probeTimeout))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Records the outcome of a request allowed by {@link #allowRequest()}.
+	 *
+	 * @param result the result produced by the request. {@link LicenseValidationResult#ERROR} is recorded as a
+	 *               failure and any other result as a success.
+	 */
+	public void recordResult(LicenseValidationResult result) {
+		if (result == LicenseValidationResult.ERROR) {
+			recordFailure();
+		} else {
+			recordSuccess();
+		}
+	}
+
+	/**
+	 * Records a successful request, closing the breaker.
+	 */
+	public void recordSuccess() {
+		if (snapshot.get() != CLOSED_SNAPSHOT) {
+			snapshot.set(CLOSED_SNAPSHOT);
+		}
+	}
+
+	/**
+	 * Records a failed request, opening the breaker if the failure threshold has been reached. Failures of
+	 * requests that were already in flight while the breaker is open don't extend the open period.
+	 */
+	public void recordFailure() {
+		while (true) {
+			Snapshot s = snapshot.get();
+			int failures = s.failures == Integer.MAX_VALUE ? s.failures : s.failures + 1;
+			long now = System.currentTimeMillis();
+
+			Snapshot next;
+			if (failures < failureThreshold || now < s.openUntil) {
+				next = new Snapshot(failures, s.openings, s.openUntil, s.probeDeadline);
+			} else {
+				int openings = s.openings == Integer.MAX_VALUE ? s.openings : s.openings + 1;
+				next = new Snapshot(failures, openings, now + openPeriod(openings), 0L);
+			}
+			if (snapshot.compareAndSet(s, next)) {
+				return;
+			}
+		}
+	}
+
+	private long openPeriod(int opening) {
+		return backoffPolicy.backoff(opening) / 2L + backoffPolicy.delay(opening) / 2L;
+	}
+
+	@Override
+	public String toString() {
+		return getState().toString();
+	}
+}
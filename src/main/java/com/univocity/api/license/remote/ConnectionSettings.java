@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Settings of the persistent connections used to communicate with the license server given by
+ * {@link Store#licenseServerDomain()}.
+ *
+ * Connections to the license server are kept alive and reused across requests, so that TCP, TLS and proxy
+ * authentication handshakes are not repeated on every remote synchronization. All {@link LicenseManager}
+ * instances that connect to the same license server domain, through the same proxy and with equal
+ * {@code ConnectionSettings}, share the same pool of connections.
+ *
+ * @see LicenseManager#setConnectionSettings(ConnectionSettings)
+ */
+public final class ConnectionSettings {
+
+	/**
+	 * Settings used by default: up to 4 connections per license server, kept alive for 5 minutes when idle,
+	 * with a connect timeout of 10 seconds and a read timeout of 30 seconds.
+	 */
+	public static final ConnectionSettings DEFAULT = new ConnectionSettings(4, TimeUnit.MINUTES.toMillis(5), TimeUnit.SECONDS.toMillis(10), TimeUnit.SECONDS.toMillis(30));
+
+	private final int maxConnections;
+	private final long idleTimeout;
+	private final long connectTimeout;
+	private final long readTimeout;
+
+	/**
+	 * Creates a new set of connection settings.
+	 *
+	 * @param maxConnections the maximum number of connections kept open to each license server. Requests made
+	 *                       while all connections are in use wait for a connection to become available, up to
+	 *                       the connect timeout.
+	 * @param idleTimeout    the time, in milliseconds, an idle connection is kept open before being closed.
+	 *                       Use {@code 0} to close connections after each request.
+	 * @param connectTimeout the maximum time, in milliseconds, to wait for a connection to be established or to
+	 *                       become available in the pool. Use {@code 0} to wait indefinitely.
+	 * @param readTimeout    the maximum time, in milliseconds, to wait for the license server to respond. Use
+	 *                       {@code 0} to wait indefinitely.
+	 */
+	public ConnectionSettings(int maxConnections, long idleTimeout, long connectTimeout, long readTimeout) {
+		if (maxConnections <= 0) {
+			throw new IllegalArgumentException("Maximum number of connections must be positive. Got " + maxConnections);
+		}
+		if (idleTimeout < 0 || connectTimeout < 0 || readTimeout < 0) {
+			throw new IllegalArgumentException("Timeouts can't be negative");
+		}
+		this.maxConnections = maxConnections;
+		this.idleTimeout = idleTimeout;
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Returns the maximum number of connections kept open to each license server.
+	 *
+	 * @return the connection pool size.
+	 */
+	public final int maxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Returns the time an idle connection is kept open before being closed.
+	 *
+	 * @return the idle timeout, in milliseconds.
+	 */
+	public final long idleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Returns the maximum time to wait for a connection to be established or to become available in the pool.
+	 *
+	 * @return the connect timeout, in milliseconds.
+	 */
+	public final long connectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Returns the maximum time to wait for the license server to respond.
+	 *
+	 * @return the read timeout, in milliseconds.
+	 */
+	public final long readTimeout() {
+		return readTimeout;
+	}
+
+	@Override
+	public final String toString() {
+		return "maxConnections=" + maxConnections + ", idleTimeout=" + idleTimeout + "ms, connectTimeout=" + connectTimeout + "ms, readTimeout=" + readTimeout + "ms";
+	}
+
+	@Override
+	public final boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		ConnectionSettings that = (ConnectionSettings) o;
+
+		if (maxConnections != that.maxConnections) return false;
+		if (idleTimeout != that.idleTimeout) return false;
+		if (connectTimeout != that.connectTimeout) return false;
+		return readTimeout == that.readTimeout;
+	}
+
+	@Override
+	public final int hashCode() {
+		int result = maxConnections;
+		result = 31 * result + (int) (idleTimeout ^ (idleTimeout >>> 32));
+		result = 31 * result + (int) (connectTimeout ^ (connectTimeout >>> 32));
+		result = 31 * result + (int) (readTimeout ^ (readTimeout >>> 32));
+		return result;
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+import com.univocity.api.license.pool.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.univocity.api.license.remote.WireFormat.*;
+
+/**
+ * A batch of license checks and seat lease renewals sent to a license server (see {@link Store#licenseServerDomain()})
+ * in a single request, so that the number of requests doesn't grow with the number of licenses or leases held by a
+ * node. The server answers with a {@link HeartbeatResponse} holding one result per entry of the request.
+ *
+ * Format (version 1), using unsigned variable-length integers and length-prefixed UTF-8 strings:
+ * <pre>
+ * byte    'H'
+ * byte    format version
+ * varint  lease duration, in milliseconds
+ * varint  number of serial keys, followed by each serial key
+ * varint  number of pools, followed by each pool name, its number of leases and each lease identifier
+ * </pre>
+ * Leases are grouped by pool, so the name of each pool is sent only once.
+ */
+public final class HeartbeatRequest {
+
+	static final int MAGIC = 'H';
+	static final int FORMAT_VERSION = 1;
+
+	private final Set<String> serialKeys = new LinkedHashSet<String>();
+	private final Map<String, Set<String>> leasesPerPool = new LinkedHashMap<String, Set<String>>();
+	private long leaseDuration = TimeUnit.MINUTES.toMillis(5);
+	private int leaseCount;
+
+	/**
+	 * Adds the serial key of a license to be validated by the license server (see {@link License#getSerialKey()}).
+	 * Duplicate keys are ignored.
+	 *
+	 * @param serialKey the serial key to validate
+	 *
+	 * @return this request, for chaining.
+	 */
+	public HeartbeatRequest addSerialKey(String serialKey) {
+		Args.notBlank(serialKey, "Serial key");
+		serialKeys.add(serialKey);
+		return this;
+	}
+
+	/**
+	 * Adds a seat lease to be renewed by the license server. Duplicate leases are ignored.
+	 *
+	 * @param poolName the name of the license pool
+	 * @param leaseId  the identifier of the lease (see {@link SeatLease#leaseId()})
+	 *
+	 * @return this request, for chaining.
+	 */
+	public HeartbeatRequest addLease(String poolName, String leaseId) {
+		Args.notBlank(poolName, "License pool name");
+		Args.notBlank(leaseId, "Lease identifier");
+		Set<String> leases = leasesPerPool.get(poolName);
+		if (leases == null) {
+			leases = new LinkedHashSet<String>();
+			leasesPerPool.put(poolName, leases);
+		}
+		if (leases.add(leaseId)) {
+			leaseCount++;
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a seat lease to be renewed by the license server. Duplicate leases are ignored.
+	 *
+	 * @param lease the lease to renew
+	 *
+	 * @return this request, for chaining.
+	 */
+	public HeartbeatRequest addLease(SeatLease lease) {
+		Args.notNull(lease, "Seat lease");
+		return addLease(lease.poolName(), lease.leaseId());
+	}
+
+	/**
+	 * Defines for how long the leases in this request are extended. Defaults to 5 minutes.
+	 *
+	 * @param duration the time the seats will be held from the moment the server processes this request.
+	 * @param unit     the time unit of the duration
+	 *
+	 * @return this request, for chaining.
+	 */
+	public HeartbeatRequest setLeaseDuration(long duration, TimeUnit unit) {
+		Args.notNull(unit, "Time unit");
+		if (duration <= 0) {
+			throw new IllegalArgumentException("Lease duration must be positive. Got " + duration);
+		}
+		this.leaseDuration = Math.max(1L, unit.toMillis(duration));
+		return this;
+	}
+
+	/**
+	 * Returns for how long the leases in this request are extended.
+	 *
+	 * @return the lease duration, in milliseconds.
+	 */
+	public long getLeaseDuration() {
+		return leaseDuration;
+	}
+
+	/**
+	 * Returns the serial keys to validate, in the order they were added.
+	 *
+	 * @return an unmodifiable view of the serial keys of this request.
+	 */
+	public Set<String> getSerialKeys() {
+		return Collections.unmodifiableSet(serialKeys);
+	}
+
+	/**
+	 * Returns the identifiers of the leases to renew, grouped by pool name, in the order they were added.
+	 *
+	 * @return an unmodifiable view of the leases of this request.
+	 */
+	public Map<String, Set<String>> getLeases() {
+		return Collections.unmodifiableMap(leasesPerPool);
+	}
+
+	/**
+	 * Returns the number of entries (serial keys and leases) in this request.
+	 *
+	 * @return the number of results expected in the response.
+	 */
+	public int size() {
+		return serialKeys.size() + leaseCount;
+	}
+
+	/**
+	 * Encodes this request.
+	 *
+	 * @return a buffer with the encoded request, ready to be read.
+	 */
+	public ByteBuffer encode() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + size() * 24);
+		out.write(MAGIC);
+		out.write(FORMAT_VERSION);
+		writeVarLong(out, leaseDuration);
+		writeVarLong(out, serialKeys.size());
+		for (String serialKey : serialKeys) {
+			writeString(out, serialKey);
+		}
+		writeVarLong(out, leasesPerPool.size());
+		for (Map.Entry<String, Set<String>> e : leasesPerPool.entrySet()) {
+			writeString(out, e.getKey());
+			writeVarLong(out, e.getValue().size());
+			for (String leaseId : e.getValue()) {
+				writeString(out, leaseId);
+			}
+		}
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+	/**
+	 * Decodes a request produced by {@link #encode()}.
+	 *
+	 * @param content a buffer with the encoded request. Its position is not modified.
+	 *
+	 * @return the decoded request.
+	 *
+	 * @throws IllegalArgumentException if the content is not a valid heartbeat request.
+	 */
+	public static HeartbeatRequest decode(ByteBuffer content) {
+		Args.notNull(content, "Heartbeat request content");
+		ByteBuffer in = readable(content);
+		expectHeader(in, MAGIC, FORMAT_VERSION, "heartbeat request");
+
+		HeartbeatRequest request = new HeartbeatRequest();
+		request.setLeaseDuration(readVarLong(in), TimeUnit.MILLISECONDS);
+		int keys = readVarInt(in);
+		for (int i = 0; i < keys; i++) {
+			request.addSerialKey(readString(in));
+		}
+		int pools = readVarInt(in);
+		for (int i = 0; i < pools; i++) {
+			String poolName = readString(in);
+			int leases = readVarInt(in);
+			for (int j = 0; j < leases; j++) {
+				request.addLease(poolName, readString(in));
+			}
+		}
+		return request;
+	}
+
+	@Override
+	public String toString() {
+		return "Heartbeat with " + serialKeys.size() + " serial keys and " + leaseCount + " leases";
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+import com.univocity.api.license.pool.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import static com.univocity.api.license.remote.WireFormat.*;
+
+/**
+ * The results of a {@link HeartbeatRequest}: one {@link LicenseValidationResult} per serial key, and one renewed
+ * {@link SeatLease} per lease of the request.
+ *
+ * Keys and lease identifiers are not sent back. Results are encoded in the order of the entries of the request, each
+ * as a single byte with its {@link LicenseValidationResult#code}, so a response takes about one byte per serial key
+ * and a few bytes per lease. Format (version 1):
+ * <pre>
+ * byte    'h'
+ * byte    format version
+ * varint  server time, in milliseconds since the epoch
+ * for each serial key of the request: byte result code
+ * for each lease of the request: byte result code, and if the code is {@link LicenseValidationResult#VALID},
+ *                                varint time until the lease expires, in milliseconds
+ * </pre>
+ */
+public final class HeartbeatResponse {
+
+	static final int MAGIC = 'h';
+	static final int FORMAT_VERSION = 1;
+
+	private final HeartbeatRequest request;
+	private final Map<String, LicenseValidationResult> results = new HashMap<String, LicenseValidationResult>();
+	private final Map<String, SeatLease> leases = new HashMap<String, SeatLease>();
+
+	/**
+	 * Creates an empty response to a given request. Entries without a result are reported as
+	 * {@link LicenseValidationResult#ERROR}.
+	 *
+	 * @param request the request being answered
+	 */
+	public HeartbeatResponse(HeartbeatRequest request) {
+		Args.notNull(request, "Heartbeat request");
+		this.request = request;
+	}
+
+	/**
+	 * Defines the validation result of a serial key of the request.
+	 *
+	 * @param serialKey the serial key
+	 * @param result    the result of its validation
+	 *
+	 * @return this response, for chaining.
+	 */
+	public HeartbeatResponse setResult(String serialKey, LicenseValidationResult result) {
+		Args.notNull(result, "Validation result");
+		if (!request.getSerialKeys().contains(serialKey)) {
+			throw new IllegalArgumentException("Serial key '" + serialKey + "' is not part of the heartbeat request");
+		}
+		results.put(serialKey, result);
+		return this;
+	}
+
+	/**
+	 * Defines the outcome of the renewal of a lease of the request.
+	 *
+	 * @param poolName   the name of the license pool
+	 * @param leaseId    the identifier of the lease
+	 * @param result     {@link LicenseValidationResult#VALID} if the lease was renewed, or the reason why it wasn't.
+	 * @param expiration the new expiration time of the lease, in milliseconds since the epoch. Ignored if the lease
+	 *                   was not renewed.
+	 *
+	 * @return this response, for chaining.
+	 */
+	public HeartbeatResponse setLease(String poolName, String leaseId, LicenseValidationResult result, long expiration) {
+		Args.notNull(result, "Validation result");
+		Set<String> poolLeases = request.getLeases().get(poolName);
+		if (poolLeases == null || !poolLeases.contains(leaseId)) {
+			throw new IllegalArgumentException("Lease '" + leaseId + "' of pool '" + poolName + "' is not part of the heartbeat request");
+		}
+		SeatLease lease = result == LicenseValidationResult.VALID ? new SeatLease(poolName, leaseId, null, expiration, result) : new SeatLease(poolName, leaseId, null, 0L, result);
+		leases.put(key(poolName, leaseId), lease);
+		return this;
+	}
+
+	private static String key(String poolName, String leaseId) {
+		return poolName + '\n' + leaseId;
+	}
+
+	/**
+	 * Returns the validation result of a serial key of the request.
+	 *
+	 * @param serialKey the serial key
+	 *
+	 * @return the result of its validation, or {@link LicenseValidationResult#ERROR} if no result was provided.
+	 */
+	public LicenseValidationResult getResult(String serialKey) {
+		LicenseValidationResult result = results.get(serialKey);
+		return result == null ? LicenseValidationResult.ERROR : result;
+	}
+
+	/**
+	 * Returns the validation results of all serial keys of the request.
+	 *
+	 * @return a map of each serial key to its validation result, in the order of the request.
+	 */
+	public Map<String, LicenseValidationResult> getResults() {
+		Map<String, LicenseValidationResult> out = new LinkedHashMap<String, LicenseValidationResult>();
+		for (String serialKey : request.getSerialKeys()) {
+			out.put(serialKey, getResult(serialKey));
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the renewed lease of the request with the given identifier. The {@link SeatLease#nodeId()} of leases
+	 * in heartbeat responses is {@code null}.
+	 *
+	 * @param poolName the name of the license pool
+	 * @param leaseId  the identifier of the lease
+	 *
+	 * @return the renewed lease, with result {@link LicenseValidationResult#VALID}, or a lease with the reason why it
+	 * wasn't renewed ({@link LicenseValidationResult#ERROR} if no result was provided).
+	 */
+	public SeatLease getLease(String poolName, String leaseId) {
+		SeatLease lease = leases.get(key(poolName, leaseId));
+		return lease == null ? new SeatLease(poolName, leaseId, null, 0L, LicenseValidationResult.ERROR) : lease;
+	}
+
+	/**
+	 * Encodes this response.
+	 *
+	 * @param serverTime the current time of the server, in milliseconds since the epoch.
+	 *
+	 * @return a buffer with the encoded response, ready to be read.
+	 */
+	public ByteBuffer encode(long serverTime) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + request.size() * 4);
+		out.write(MAGIC);
+		out.write(FORMAT_VERSION);
+		writeVarLong(out, serverTime);
+		for (String serialKey : request.getSerialKeys()) {
+			out.write(getResult(serialKey).code);
+		}
+		for (Map.Entry<String, Set<String>> e : request.getLeases().entrySet()) {
+			for (String leaseId : e.getValue()) {
+				SeatLease lease = getLease(e.getKey(), leaseId);
+				out.write(lease.result().code);
+				if (lease.result() == LicenseValidationResult.VALID) {
+					writeVarLong(out, Math.max(0L, lease.expiration() - serverTime));
+				}
+			}
+		}
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+	/**
+	 * Decodes a response produced by {@link #encode(long)}. Lease expiration times are converted from the server clock
+	 * to the local clock.
+	 *
+	 * @param content a buffer with the encoded response. Its position is not modified.
+	 * @param request the request being answered
+	 *
+	 * @return the decoded response.
+	 *
+	 * @throws IllegalArgumentException if the content is not a valid response to the given request.
+	 */
+	public static HeartbeatResponse decode(ByteBuffer content, HeartbeatRequest request) {
+		Args.notNull(content, "Heartbeat response content");
+		ByteBuffer in = readable(content);
+		expectHeader(in, MAGIC, FORMAT_VERSION, "heartbeat response");
+
+		HeartbeatResponse response = new HeartbeatResponse(request);
+		readVarLong(in);
+		long now = System.currentTimeMillis();
+		for (String serialKey : request.getSerialKeys()) {
+			response.results.put(serialKey, readResult(in));
+		}
+		for (Map.Entry<String, Set<String>> e : request.getLeases().entrySet()) {
+			for (String leaseId : e.getValue()) {
+				LicenseValidationResult result = readResult(in);
+				long expiration = 0L;
+				if (result == LicenseValidationResult.VALID) {
+					long remaining = readVarLong(in);
+					expiration = remaining > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + remaining;
+				}
+				response.leases.put(key(e.getKey(), leaseId), new SeatLease(e.getKey(), leaseId, null, expiration, result));
+			}
+		}
+		return response;
+	}
+
+	private static LicenseValidationResult readResult(ByteBuffer in) {
+		if (!in.hasRemaining()) {
+			throw new IllegalArgumentException("Truncated heartbeat response");
+		}
+		int code = in.get() & 0xFF;
+		if (code >= LicenseValidationResult.values().length) {
+			throw new IllegalArgumentException("Unknown validation result code: " + code);
+		}
+		return LicenseValidationResult.fromCode(code);
+	}
+
+	@Override
+	public String toString() {
+		return "Heartbeat response to " + request;
+	}
+}
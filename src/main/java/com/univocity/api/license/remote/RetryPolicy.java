@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import com.univocity.api.license.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Determines how many times a failed request to the license server is retried, and how long to wait between
+ * attempts. Delays grow exponentially from {@link #initialDelay()} up to {@link #maxDelay()}, and "full jitter" is
+ * applied: the actual delay is a random value between zero and the exponential delay, so that many clients that
+ * failed at the same time don't retry at the same time.
+ *
+ * @see LicenseManager#setRetryPolicy(RetryPolicy)
+ * @see CircuitBreaker
+ */
+public final class RetryPolicy {
+
+	/**
+	 * Policy used by default: up to 3 attempts per synchronization, starting with a delay of 1 second and
+	 * waiting at most 5 minutes.
+	 */
+	public static final RetryPolicy DEFAULT = new RetryPolicy(3, TimeUnit.SECONDS.toMillis(1), TimeUnit.MINUTES.toMillis(5));
+
+	/**
+	 * A policy that never retries.
+	 */
+	public static final RetryPolicy NO_RETRY = new RetryPolicy(1, 0L, 0L);
+
+	private static final Random random = new Random();
+
+	private final int maxAttempts;
+	private final long initialDelay;
+	private final long maxDelay;
+
+	/**
+	 * Creates a new retry policy.
+	 *
+	 * @param maxAttempts  the maximum number of attempts of each request, including the first one.
+	 * @param initialDelay the base delay before the first retry, in milliseconds.
+	 * @param maxDelay     the maximum delay between attempts, in milliseconds.
+	 */
+	public RetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("Maximum number of attempts must be positive. Got " + maxAttempts);
+		}
+		if (initialDelay < 0 || maxDelay < initialDelay) {
+			throw new IllegalArgumentException("Invalid delay range: " + initialDelay + " to " + maxDelay);
+		}
+		this.maxAttempts = maxAttempts;
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 * Returns the maximum number of attempts of each request, including the first one.
+	 *
+	 * @return the maximum number of attempts.
+	 */
+	public final int maxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Returns the base delay before the first retry.
+	 *
+	 * @return the initial delay, in milliseconds.
+	 */
+	public final long initialDelay() {
+		return initialDelay;
+	}
+
+	/**
+	 * Returns the maximum delay between attempts.
+	 *
+	 * @return the maximum delay, in milliseconds.
+	 */
+	public final long maxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 * Returns the exponential delay before a given retry, without jitter, i.e.
+	 * {@code min(maxDelay, initialDelay * 2^(retry - 1))}.
+	 *
+	 * @param retry the number of the retry, starting from {@code 1}.
+	 *
+	 * @return the upper bound of the delay before the given retry, in milliseconds.
+	 */
+	public final long backoff(int retry) {
+		if (retry <= 0 || initialDelay == 0L) {
+			return 0L;
+		}
+		int shift = Math.min(retry - 1, 62);
+		long delay = initialDelay << shift;
+		if (delay < initialDelay || (delay >>> shift) != initialDelay) { // overflow
+			return maxDelay;
+		}
+		return Math.min(delay, maxDelay);
+	}
+
+	/**
+	 * Returns a random delay between zero and {@link #backoff(int)} to wait before a given retry.
+	 *
+	 * @param retry the number of the retry, starting from {@code 1}.
+	 *
+	 * @return the delay before the given retry, in milliseconds.
+	 */
+	public final long delay(int retry) {
+		long backoff = backoff(retry);
+		if (backoff == 0L) {
+			return 0L;
+		}
+		return (long) (random.nextDouble() * (backoff + 1));
+	}
+
+	@Override
+	public final String toString() {
+		return "maxAttempts=" + maxAttempts + ", initialDelay=" + initialDelay + "ms, maxDelay=" + maxDelay + "ms";
+	}
+
+	@Override
+	public final boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		RetryPolicy that = (RetryPolicy) o;
+
+		if (maxAttempts != that.maxAttempts) return false;
+		if (initialDelay != that.initialDelay) return false;
+		return maxDelay == that.maxDelay;
+	}
+
+	@Override
+	public final int hashCode() {
+		int result = maxAttempts;
+		result = 31 * result + (int) (initialDelay ^ (initialDelay >>> 32));
+		result = 31 * result + (int) (maxDelay ^ (maxDelay >>> 32));
+		return result;
+	}
+}
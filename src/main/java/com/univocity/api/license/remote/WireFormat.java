@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * Primitives of the binary encoding of messages exchanged with the license server: unsigned variable-length
+ * integers (7 bits per byte, least significant group first) and length-prefixed UTF-8 strings.
+ */
+final class WireFormat {
+
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private WireFormat() {
+	}
+
+	static void writeVarLong(ByteArrayOutputStream out, long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative values can't be encoded: " + value);
+		}
+		while ((value & ~0x7FL) != 0L) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	static long readVarLong(ByteBuffer in) {
+		long value = 0L;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (!in.hasRemaining()) {
+				throw new IllegalArgumentException("Truncated message");
+			}
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed variable-length integer");
+	}
+
+	static int readVarInt(ByteBuffer in) {
+		long value = readVarLong(in);
+		if (value > in.remaining()) {
+			throw new IllegalArgumentException("Truncated message");
+		}
+		return (int) value;
+	}
+
+	static void writeString(ByteArrayOutputStream out, String value) {
+		byte[] bytes = value.getBytes(UTF_8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	static String readString(ByteBuffer in) {
+		int length = readVarInt(in);
+		String value = new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8);
+		in.position(in.position() + length);
+		return value;
+	}
+
+	static ByteBuffer readable(ByteBuffer in) {
+		if (in.hasArray()) {
+			return in.duplicate();
+		}
+		ByteBuffer copy = ByteBuffer.allocate(in.remaining());
+		copy.put(in.duplicate());
+		copy.flip();
+		return copy;
+	}
+
+	static void expectHeader(ByteBuffer in, int magic, int version, String message) {
+		if (in.remaining() < 2 || in.get() != (byte) magic) {
+			throw new IllegalArgumentException("Content is not a " + message);
+		}
+		int v = in.get();
+		if (v != version) {
+			throw new IllegalArgumentException("Unsupported " + message + " format version: " + v);
+		}
+	}
+}
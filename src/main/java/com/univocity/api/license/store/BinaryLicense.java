@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.store;
+
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * A {@link License} backed by a compact binary encoding. Instances are flyweights over a {@link ByteBuffer}:
+ * wrapping a buffer only validates its header, and each getter reads its value directly from the buffer.
+ * Strings are decoded once, on first access, and the last formatted string of each date is memoized
+ * per date pattern.
+ *
+ * Use {@link #encode(License)} to produce the binary representation of any {@link License}.
+ *
+ * Format (version 1, big-endian):
+ * <pre>
+ * offset  0: int   magic number
+ * offset  4: short format version
+ * offset  6: short number of string fields
+ * offset  8: int   version release date, as an epoch day
+ * offset 12: int   license expiration date, as an epoch day, or {@link EpochDays#NONE}
+ * offset 16: int   support end date, as an epoch day, or {@link EpochDays#NONE}
+ * offset 20: int[] offset of each string field, relative to the start of the license
+ * followed by each string field: int length in bytes (-1 for null) + UTF-8 bytes
+ * </pre>
+ *
+ * Dates are stored without time and time zone. {@link Calendar} instances returned by this class represent
+ * midnight of the stored date in the default time zone.
+ */
+public final class BinaryLicense implements License {
+
+	/**
+	 * Current version of the binary license format.
+	 */
+	public static final short FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x554C4C31; // "ULL1"
+
+	private static final int RELEASE_DATE_OFFSET = 8;
+	private static final int EXPIRATION_DATE_OFFSET = 12;
+	private static final int SUPPORT_END_DATE_OFFSET = 16;
+	private static final int STRING_TABLE_OFFSET = 20;
+
+	private static final int STORE_NAME = 0;
+	private static final int EMAIL = 1;
+	private static final int FIRST_NAME = 2;
+	private static final int LAST_NAME = 3;
+	private static final int SERIAL_KEY = 4;
+	private static final int PRODUCT_NAME = 5;
+	private static final int PRODUCT_VERSION = 6;
+	private static final int PRODUCT_VARIANT = 7;
+	private static final int LICENSE_POOL_NAME = 8;
+	private static final int STRING_COUNT = 9;
+
+	private static final int RELEASE_DATE = 0;
+	private static final int EXPIRATION_DATE = 1;
+	private static final int SUPPORT_END_DATE = 2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String UNDECODED = new String("");
+	private static final long UNRESOLVED_MILLIS = Long.MIN_VALUE;
+
+	private final ByteBuffer buffer;
+	private final int start;
+	private final String[] strings;
+	private final FormattedDate[] formattedDates = new FormattedDate[3];
+	private volatile long expirationEpochMillis = UNRESOLVED_MILLIS;
+
+	private static final class FormattedDate {
+		final String pattern;
+		final String value;
+
+		FormattedDate(String pattern, String value) {
+			this.pattern = pattern;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Creates a license that reads its details from the binary content of a given buffer, starting at the buffer's
+	 * current position. The buffer is not copied, so its content must not be modified while the license is in use.
+	 *
+	 * @param buffer a buffer with a license encoded by {@link #encode(License)}
+	 *
+	 * @throws IllegalArgumentException if the buffer doesn't contain a binary license in a supported format.
+	 */
+	public BinaryLicense(ByteBuffer buffer) {
+		Args.notNull(buffer, "License buffer");
+
+		this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+		this.start = buffer.position();
+
+		int limit = buffer.limit();
+		if (limit - start < STRING_TABLE_OFFSET || this.buffer.getInt(start) != MAGIC) {
+			throw new IllegalArgumentException("Buffer doesn't contain a binary license");
+		}
+		short version = this.buffer.getShort(start + 4);
+		if (version != FORMAT_VERSION) {
+			throw new IllegalArgumentException("Unsupported binary license format version: " + version);
+		}
+		int stringCount = this.buffer.getShort(start + 6);
+		if (stringCount < STRING_COUNT || limit - start < STRING_TABLE_OFFSET + stringCount * 4) {
+			throw new IllegalArgumentException("Binary license is truncated");
+		}
+		for (int i = 0; i < STRING_COUNT; i++) {
+			int offset = stringOffset(i);
+			if (offset < 0 || limit - start - offset < 4) {
+				throw new IllegalArgumentException("Binary license is truncated");
+			}
+			int length = this.buffer.getInt(start + offset);
+			if (length < -1 || limit - start - offset - 4 < length) {
+				throw new IllegalArgumentException("Binary license is truncated");
+			}
+		}
+
+		this.strings = new String[STRING_COUNT];
+		Arrays.fill(strings, UNDECODED);
+	}
+
+	/**
+	 * Encodes the details of a {@link License} using the binary license format.
+	 *
+	 * @param license the license to encode
+	 *
+	 * @return a buffer with the binary representation of the license, ready to be read.
+	 */
+	public static ByteBuffer encode(License license) {
+		Args.notNull(license, "License");
+
+		byte[][] values = new byte[STRING_COUNT][];
+		values[STORE_NAME] = utf8(license.getStoreName());
+		values[EMAIL] = utf8(license.getEmail());
+		values[FIRST_NAME] = utf8(license.getFirstName());
+		values[LAST_NAME] = utf8(license.getLastName());
+		values[SERIAL_KEY] = utf8(license.getSerialKey());
+		values[PRODUCT_NAME] = utf8(license.getProductName());
+		values[PRODUCT_VERSION] = utf8(license.getProductVersion());
+		values[PRODUCT_VARIANT] = utf8(license.getProductVariant());
+		values[LICENSE_POOL_NAME] = utf8(license.getLicensePoolName());
+
+		int size = STRING_TABLE_OFFSET + STRING_COUNT * 4;
+		for (byte[] value : values) {
+			size += 4 + (value == null ? 0 : value.length);
+		}
+
+		ByteBuffer out = ByteBuffer.allocate(size);
+		out.putInt(MAGIC);
+		out.putShort(FORMAT_VERSION);
+		out.putShort((short) STRING_COUNT);
+		out.putInt(license.getVersionReleaseEpochDay());
+		out.putInt(license.getLicenseExpirationEpochDay());
+		out.putInt(license.getSupportEndEpochDay());
+
+		int offset = STRING_TABLE_OFFSET + STRING_COUNT * 4;
+		for (byte[] value : values) {
+			out.putInt(offset);
+			offset += 4 + (value == null ? 0 : value.length);
+		}
+		for (byte[] value : values) {
+			if (value == null) {
+				out.putInt(-1);
+			} else {
+				out.putInt(value.length);
+				out.put(value);
+			}
+		}
+
+		out.flip();
+		return out;
+	}
+
+	private static byte[] utf8(String value) {
+		return value == null ? null : value.getBytes(UTF8);
+	}
+
+	private int stringOffset(int field) {
+		return buffer.getInt(start + STRING_TABLE_OFFSET + field * 4);
+	}
+
+	private String string(int field) {
+		String value = strings[field];
+		if (value == UNDECODED) {
+			value = decode(start + stringOffset(field));
+			strings[field] = value;
+		}
+		return value;
+	}
+
+	private String decode(int position) {
+		int length = buffer.getInt(position);
+		if (length < 0) {
+			return null;
+		}
+		position += 4;
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + position, length, UTF8);
+		}
+		byte[] bytes = new byte[length];
+		ByteBuffer source = buffer.duplicate();
+		source.position(position);
+		source.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	@Override
+	public int getVersionReleaseEpochDay() {
+		return buffer.getInt(start + RELEASE_DATE_OFFSET);
+	}
+
+	@Override
+	public int getLicenseExpirationEpochDay() {
+		return buffer.getInt(start + EXPIRATION_DATE_OFFSET);
+	}
+
+	@Override
+	public long getLicenseExpirationEpochMillis() {
+		long millis = expirationEpochMillis;
+		if (millis == UNRESOLVED_MILLIS) {
+			int expiration = getLicenseExpirationEpochDay();
+			millis = expiration == EpochDays.NONE ? Long.MAX_VALUE : EpochDays.toCalendar(expiration + 1).getTimeInMillis() - 1L;
+			expirationEpochMillis = millis;
+		}
+		return millis;
+	}
+
+	@Override
+	public int getSupportEndEpochDay() {
+		return buffer.getInt(start + SUPPORT_END_DATE_OFFSET);
+	}
+
+	@Override
+	public String getStoreName() {
+		return string(STORE_NAME);
+	}
+
+	@Override
+	public String getEmail() {
+		return string(EMAIL);
+	}
+
+	@Override
+	public String getFirstName() {
+		return string(FIRST_NAME);
+	}
+
+	@Override
+	public String getLastName() {
+		return string(LAST_NAME);
+	}
+
+	@Override
+	public String getSerialKey() {
+		return string(SERIAL_KEY);
+	}
+
+	@Override
+	public boolean isTrial() {
+		return buffer.getInt(start + stringOffset(SERIAL_KEY)) < 0;
+	}
+
+	@Override
+	public String getProductName() {
+		return string(PRODUCT_NAME);
+	}
+
+	@Override
+	public String getProductVersion() {
+		return string(PRODUCT_VERSION);
+	}
+
+	@Override
+	public String getProductVariant() {
+		return string(PRODUCT_VARIANT);
+	}
+
+	@Override
+	public String getLicensePoolName() {
+		return string(LICENSE_POOL_NAME);
+	}
+
+	@Override
+	public Calendar getVersionReleaseDate() {
+		return EpochDays.toCalendar(getVersionReleaseEpochDay());
+	}
+
+	@Override
+	public Calendar getLicenseExpirationDate() {
+		return EpochDays.toCalendar(getLicenseExpirationEpochDay());
+	}
+
+	@Override
+	public Calendar getSupportEndDate() {
+		return EpochDays.toCalendar(getSupportEndEpochDay());
+	}
+
+	@Override
+	public String getVersionReleaseDate(String datePattern) {
+		return format(RELEASE_DATE, getVersionReleaseEpochDay(), datePattern);
+	}
+
+	@Override
+	public String getLicenseExpirationDate(String datePattern) {
+		return format(EXPIRATION_DATE, getLicenseExpirationEpochDay(), datePattern);
+	}
+
+	@Override
+	public String getSupportEndDate(String datePattern) {
+		return format(SUPPORT_END_DATE, getSupportEndEpochDay(), datePattern);
+	}
+
+	private String format(int field, int epochDay, String datePattern) {
+		FormattedDate formatted = formattedDates[field];
+		if (formatted == null || !formatted.pattern.equals(datePattern)) {
+			formatted = new FormattedDate(datePattern, DateFormats.format(epochDay, datePattern));
+			formattedDates[field] = formatted;
+		}
+		return formatted.value;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		out.append(getProductName());
+		String variant = getProductVariant();
+		if (variant != null && variant.length() > 0) {
+			out.append(' ').append(variant);
+		}
+		out.append(' ').append(getProductVersion());
+		if (isTrial()) {
+			out.append(" (trial)");
+		}
+		out.append(" licensed to ").append(getEmail());
+		return out.toString();
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.store;
+
+import com.univocity.api.license.*;
+
+import java.io.*;
+import java.nio.*;
+
+/**
+ * A storage backend for the local copy of a license, used by a {@link LicenseManager} as an alternative to the
+ * license file given by {@link LicenseManager#getLicenseFilePath()}.
+ *
+ * The store only deals with the raw, signed license content. Parsing and validating the license is responsibility
+ * of the {@link LicenseManager}.
+ *
+ * Implementations must be thread-safe.
+ *
+ * @see LicenseManager#setLicenseStore(LicenseStore)
+ */
+public interface LicenseStore {
+
+	/**
+	 * Returns a number that changes every time the content of this store is modified. Callers can compare the
+	 * version with the one obtained when the store was last read to determine whether the license needs to be
+	 * parsed again.
+	 *
+	 * @return the current version of the store content.
+	 *
+	 * @throws IOException if the store can't be accessed.
+	 */
+	long version() throws IOException;
+
+	/**
+	 * Reads the license currently stored.
+	 *
+	 * @return a read-only buffer with the license content, or {@code null} if no license is stored.
+	 *
+	 * @throws IOException if the store can't be accessed.
+	 */
+	ByteBuffer read() throws IOException;
+
+	/**
+	 * Replaces the content of this store with the given license.
+	 *
+	 * @param license the license content to store.
+	 *
+	 * @throws IOException if the store can't be accessed, or if the license is too large to fit in the store.
+	 */
+	void write(ByteBuffer license) throws IOException;
+
+	/**
+	 * Removes the license from this store. Subsequent calls to {@link #read()} will return {@code null}.
+	 *
+	 * @throws IOException if the store can't be accessed.
+	 */
+	void delete() throws IOException;
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.store;
+
+import com.univocity.api.common.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.zip.*;
+
+/**
+ * A {@link LicenseStore} backed by a memory-mapped file that can be shared by multiple processes running in the
+ * same host. Reads never lock: the file starts with a header holding a sequence number that is incremented before
+ * and after each write (a "seqlock"), and a checksum of the content. Readers copy the content and retry if the
+ * sequence changed or the checksum doesn't match, which happens only if a write was in progress. While a write is in
+ * progress, readers wait with an exponential backoff that parks the thread for at most a millisecond at a time,
+ * instead of spinning on the CPU.
+ *
+ * Writers are serialized with an exclusive {@link FileLock}, so concurrent writes from different processes can't
+ * corrupt the file. File locks are held on behalf of the whole JVM, so writers of the same JVM are first serialized
+ * with a lock shared by all instances that map the same canonical path, which is discarded once all of them are
+ * closed. Many instances can therefore be opened on the same file. The last content read is kept in memory and returned again while the sequence number remains
+ * the same, so repeated reads don't copy anything.
+ *
+ * File layout:
+ * <pre>
+ * offset  0: int  magic number
+ * offset  4: int  capacity of the content area, in bytes
+ * offset  8: long sequence number (odd while a write is in progress)
+ * offset 16: int  content length, or -1 if no license is stored
+ * offset 20: int  CRC32 of the content
+ * offset 24: content
+ * </pre>
+ */
+public final class MappedLicenseFile implements LicenseStore, Closeable {
+
+	/**
+	 * Default capacity of the content area of new files, in bytes.
+	 */
+	public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+	private static final int MAGIC = 0x554C4943; // "ULIC"
+	private static final int CAPACITY_OFFSET = 4;
+	private static final int SEQUENCE_OFFSET = 8;
+	private static final int LENGTH_OFFSET = 16;
+	private static final int CHECKSUM_OFFSET = 20;
+	private static final int HEADER_SIZE = 24;
+
+	private static final long MIN_BACKOFF_NANOS = 1000L;
+	private static final long MAX_BACKOFF_NANOS = 1000000L;
+	private static final long RECOVERY_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private static final ConcurrentMap<String, PathLock> pathLocks = new ConcurrentHashMap<String, PathLock>();
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int capacity;
+
+	private final PathLock pathLock;
+	private final Lock writeLock;
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	private volatile Snapshot snapshot;
+
+	/**
+	 * The write lock shared by all open instances that map the same canonical path, with the number of such instances.
+	 */
+	private static final class PathLock {
+		final String path;
+		final Lock lock = new ReentrantLock();
+		final AtomicInteger users = new AtomicInteger(1);
+
+		PathLock(String path) {
+			this.path = path;
+		}
+
+		/**
+		 * Registers a new user of this lock, unless it was already released by all its users and discarded.
+		 */
+		boolean retain() {
+			while (true) {
+				int current = users.get();
+				if (current == 0) {
+					return false;
+				}
+				if (users.compareAndSet(current, current + 1)) {
+					return true;
+				}
+			}
+		}
+
+		void release() {
+			if (users.decrementAndGet() == 0) {
+				pathLocks.remove(path, this);
+			}
+		}
+	}
+
+	private static final class Snapshot {
+		final long sequence;
+		final ByteBuffer content;
+
+		Snapshot(long sequence, ByteBuffer content) {
+			this.sequence = sequence;
+			this.content = content;
+		}
+	}
+
+	/**
+	 * Opens or creates a memory-mapped license file with the {@link #DEFAULT_CAPACITY}.
+	 *
+	 * @param path the path to the license file.
+	 *
+	 * @throws IOException if the file can't be created or mapped into memory.
+	 */
+	public MappedLicenseFile(String path) throws IOException {
+		this(path, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Opens or creates a memory-mapped license file. If the file already exists, the capacity recorded in its header
+	 * is used and the given capacity is ignored.
+	 *
+	 * @param path     the path to the license file.
+	 * @param capacity the maximum size of the license content, in bytes, if the file needs to be created.
+	 *
+	 * @throws IOException if the file can't be created or mapped into memory, or if it exists and is not a license
+	 *                     file created by this class.
+	 */
+	public MappedLicenseFile(String path, int capacity) throws IOException {
+		Args.notBlank(path, "License file path");
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("License file capacity must be positive. Got " + capacity);
+		}
+
+		this.file = new File(path);
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+			throw new IOException("Unable to create directory " + parent.getAbsolutePath());
+		}
+
+		this.pathLock = pathLock(file);
+		this.writeLock = pathLock.lock;
+		RandomAccessFile randomAccessFile = null;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			this.randomAccessFile = randomAccessFile;
+			this.channel = randomAccessFile.getChannel();
+			this.capacity = initialize(capacity);
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + this.capacity);
+		} catch (IOException e) {
+			if (randomAccessFile != null) {
+				randomAccessFile.close();
+			}
+			pathLock.release();
+			throw e;
+		}
+	}
+
+	private static PathLock pathLock(File file) throws IOException {
+		String canonicalPath = file.getCanonicalPath();
+		while (true) {
+			PathLock lock = pathLocks.get(canonicalPath);
+			if (lock == null) {
+				lock = new PathLock(canonicalPath);
+				PathLock existing = pathLocks.putIfAbsent(canonicalPath, lock);
+				if (existing == null) {
+					return lock;
+				}
+				lock = existing;
+			}
+			if (lock.retain()) {
+				return lock;
+			}
+			pathLocks.remove(canonicalPath, lock);
+		}
+	}
+
+	/**
+	 * Returns the number of canonical paths with open instances.
+	 *
+	 * @return the number of write locks shared by open instances.
+	 */
+	static int openPathCount() {
+		return pathLocks.size();
+	}
+
+	private int initialize(int capacity) throws IOException {
+		writeLock.lock();
+		try {
+			return initializeLocked(capacity);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private int initializeLocked(int capacity) throws IOException {
+		FileLock lock = channel.lock();
+		try {
+			if (channel.size() >= HEADER_SIZE) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				channel.read(header, 0);
+				if (header.getInt(0) != MAGIC) {
+					throw new IOException("File " + file.getAbsolutePath() + " is not a memory-mapped license file");
+				}
+				return header.getInt(CAPACITY_OFFSET);
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(0, MAGIC);
+			header.putInt(CAPACITY_OFFSET, capacity);
+			header.putLong(SEQUENCE_OFFSET, 0L);
+			header.putInt(LENGTH_OFFSET, -1);
+			header.putInt(CHECKSUM_OFFSET, 0);
+			channel.write(header, 0);
+			channel.write(ByteBuffer.allocate(1), HEADER_SIZE + capacity - 1);
+			channel.force(true);
+			return capacity;
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * Returns the maximum size of the license content, in bytes, that can be stored in this file.
+	 *
+	 * @return the capacity of the content area of this file.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public long version() {
+		return buffer.getLong(SEQUENCE_OFFSET);
+	}
+
+	@Override
+	public ByteBuffer read() throws IOException {
+		Snapshot current = snapshot;
+		long backoff = 0L;
+		long recoveryDeadline = 0L;
+		while (true) {
+			long sequence = buffer.getLong(SEQUENCE_OFFSET);
+			if (current != null && current.sequence == sequence) {
+				return current.content == null ? null : current.content.duplicate();
+			}
+
+			if ((sequence & 1L) == 0L) {
+				Snapshot read = readContent(sequence);
+				if (read != null) {
+					snapshot = read;
+					return read.content == null ? null : read.content.duplicate();
+				}
+			}
+
+			if (backoff == 0L) {
+				backoff = MIN_BACKOFF_NANOS;
+				recoveryDeadline = System.nanoTime() + RECOVERY_TIMEOUT_NANOS;
+			} else if (System.nanoTime() - recoveryDeadline >= 0L) {
+				recover();
+				backoff = 0L;
+				continue;
+			}
+			LockSupport.parkNanos(this, backoff);
+			backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+		}
+	}
+
+	private Snapshot readContent(long sequence) {
+		int length = buffer.getInt(LENGTH_OFFSET);
+		int checksum = buffer.getInt(CHECKSUM_OFFSET);
+
+		if (length < 0) {
+			if (buffer.getLong(SEQUENCE_OFFSET) != sequence) {
+				return null;
+			}
+			return new Snapshot(sequence, null);
+		}
+		if (length > capacity) {
+			return null;
+		}
+
+		byte[] content = new byte[length];
+		ByteBuffer source = buffer.duplicate();
+		source.position(HEADER_SIZE);
+		source.get(content, 0, length);
+
+		if (buffer.getLong(SEQUENCE_OFFSET) != sequence || checksum(content, length) != checksum) {
+			return null;
+		}
+		return new Snapshot(sequence, ByteBuffer.wrap(content).asReadOnlyBuffer());
+	}
+
+	/**
+	 * Invoked when a consistent read is not possible for too long, which happens if a writer process died
+	 * mid-write. If no other process holds the write lock, the content is unreliable and is discarded.
+	 */
+	private void recover() throws IOException {
+		writeLock.lock();
+		try {
+			FileLock lock = channel.lock();
+			try {
+				long sequence = buffer.getLong(SEQUENCE_OFFSET);
+				if ((sequence & 1L) != 0L || readContent(sequence) == null) {
+					if ((sequence & 1L) == 0L) {
+						sequence++;
+					}
+					buffer.putInt(LENGTH_OFFSET, -1);
+					buffer.putInt(CHECKSUM_OFFSET, 0);
+					buffer.putLong(SEQUENCE_OFFSET, sequence + 1);
+					buffer.force();
+				}
+			} finally {
+				lock.release();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void write(ByteBuffer license) throws IOException {
+		Args.notNull(license, "License content");
+
+		ByteBuffer source = license.duplicate();
+		int length = source.remaining();
+		if (length > capacity) {
+			throw new IOException("License content has " + length + " bytes and exceeds the capacity of " + capacity + " bytes of file " + file.getAbsolutePath());
+		}
+		byte[] content = new byte[length];
+		source.get(content);
+
+		update(content, length);
+	}
+
+	@Override
+	public void delete() throws IOException {
+		update(null, -1);
+	}
+
+	private void update(byte[] content, int length) throws IOException {
+		writeLock.lock();
+		try {
+			FileLock lock = channel.lock();
+			try {
+				long sequence = buffer.getLong(SEQUENCE_OFFSET);
+				if ((sequence & 1L) != 0L) { // previous writer died mid-write
+					sequence++;
+				}
+				buffer.putLong(SEQUENCE_OFFSET, sequence + 1);
+
+				if (content != null) {
+					ByteBuffer target = buffer.duplicate();
+					target.position(HEADER_SIZE);
+					target.put(content, 0, length);
+				}
+				buffer.putInt(LENGTH_OFFSET, length);
+				buffer.putInt(CHECKSUM_OFFSET, content == null ? 0 : checksum(content, length));
+
+				buffer.putLong(SEQUENCE_OFFSET, sequence + 2);
+				buffer.force();
+			} finally {
+				lock.release();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private static int checksum(byte[] content, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Closes the underlying file. The memory mapping is released once this object is garbage collected. Closing an
+	 * instance that is already closed has no effect.
+	 *
+	 * @throws IOException if the file can't be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed.compareAndSet(false, true)) {
+			try {
+				randomAccessFile.close();
+			} finally {
+				pathLock.release();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return file.getAbsolutePath();
+	}
+}
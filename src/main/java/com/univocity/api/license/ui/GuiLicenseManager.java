@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.ui;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+
+import java.awt.*;
+
+/**
+ * A {@link LicenseManager} that also provides a graphical license management user interface.
+ *
+ * AWT classes are only referenced by this interface, so applications that only use {@link LicenseManager} to
+ * validate and assign licenses never load or initialize AWT. Obtain an instance with
+ * {@link Product#guiLicenseManager()}.
+ */
+public interface GuiLicenseManager extends LicenseManager {
+
+	/**
+	 * Starts the appropriate license management user interface based on the user's graphics environment. Essentially, if
+	 * {@link GraphicsEnvironment#isHeadless()} evaluates to {@code true} the command line interface will be started
+	 * (same as {@link #startCmd()}); otherwise the license manager dialog will be displayed (same as {@link #startGui()})
+	 */
+	void start();
+
+	/**
+	 * Displays a license management window to allow users request an evaluation license, activate/deactivate their
+	 * purchased license and configure a proxy to be able to access the license server if required.
+	 */
+	void startGui();
+
+	/**
+	 * Defines an icon image to be used on the windows and dialogs displayed to the user when
+	 * {@link #startGui()} is called.
+	 *
+	 * @param icon an icon for the license management UI
+	 */
+	void setIcon(Image icon);
+
+	/**
+	 * Defines a logo to be displayed at the top of the license management window displayed when {@link #startGui()}}
+	 * is called.
+	 *
+	 * @param logo a logo for the license management UI
+	 */
+	void setLogo(Image logo);
+
+	/**
+	 * Returns the icon image to be used on the windows and dialogs displayed to the user when
+	 * {@link #startGui()} is called.
+	 *
+	 * @return an icon for the license management UI
+	 */
+	Image getIcon();
+
+	/**
+	 * Returns the logo to be displayed at the top of the license management window displayed when {@link #startGui()}}
+	 * is called.
+	 *
+	 * @return the logo to be displayed by the license management UI
+	 */
+	Image getLogo();
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license;
+
+import com.univocity.api.license.details.*;
+import org.junit.*;
+
+import java.nio.*;
+import java.security.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RevocationListTest {
+
+	private static final String ALGORITHM = "SHA256withRSA";
+
+	private static KeyPair keyPair;
+
+	private static synchronized KeyPair keyPair() throws Exception {
+		if (keyPair == null) {
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(1024);
+			keyPair = generator.generateKeyPair();
+		}
+		return keyPair;
+	}
+
+	private static ByteBuffer encode(Collection<String> serialKeys) throws Exception {
+		Signature signer = Signature.getInstance(ALGORITHM);
+		signer.initSign(keyPair().getPrivate());
+		return RevocationList.encode(serialKeys, 1234L, signer);
+	}
+
+	private static RevocationList load(ByteBuffer content) throws Exception {
+		return RevocationList.load(content, new SignatureVerifier(keyPair().getPublic(), ALGORITHM));
+	}
+
+	@Test
+	public void testNoFalseNegatives() throws Exception {
+		List<String> revoked = new ArrayList<String>();
+		for (int i = 0; i < 100000; i++) {
+			revoked.add("SERIAL-" + i);
+		}
+		RevocationList list = load(encode(revoked));
+
+		assertEquals(revoked.size(), list.size());
+		assertEquals(1234L, list.getIssuedAt());
+		for (String serialKey : revoked) {
+			assertTrue(serialKey, list.isRevoked(serialKey));
+		}
+	}
+
+	@Test
+	public void testKeysNotRevoked() throws Exception {
+		RevocationList list = load(encode(Arrays.asList("A", "B", "C")));
+		for (int i = 0; i < 10000; i++) {
+			assertFalse(list.isRevoked("OTHER-" + i));
+		}
+		assertFalse(list.isRevoked(null));
+		assertFalse(RevocationList.EMPTY.isRevoked("A"));
+	}
+
+	@Test
+	public void testDuplicateKeys() throws Exception {
+		RevocationList list = load(encode(Arrays.asList("A", "A", "B")));
+		assertEquals(2, list.size());
+		assertTrue(list.isRevoked("A"));
+		assertTrue(list.isRevoked("B"));
+	}
+
+	@Test
+	public void testPositionIsNotModified() throws Exception {
+		ByteBuffer content = encode(Arrays.asList("A"));
+		int position = content.position();
+		load(content);
+		assertEquals(position, content.position());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTamperedContentIsRejected() throws Exception {
+		ByteBuffer content = encode(Arrays.asList("A", "B"));
+		content.put(content.position() + 12, (byte) (content.get(content.position() + 12) + 1));
+		load(content);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidContentIsRejected() throws Exception {
+		load(ByteBuffer.wrap(new byte[64]));
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.concurrent;
+
+import com.univocity.api.license.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+import static org.junit.Assert.*;
+
+public class BackgroundRefresherTest {
+
+	/**
+	 * Records scheduled refreshes instead of running them, so that tests run each refresh explicitly.
+	 */
+	private static final class ManualScheduler extends ScheduledThreadPoolExecutor {
+		final List<Runnable> tasks = new CopyOnWriteArrayList<Runnable>();
+		volatile boolean rejecting;
+
+		ManualScheduler() {
+			super(1);
+		}
+
+		@Override
+		public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+			if (rejecting) {
+				throw new RejectedExecutionException();
+			}
+			tasks.add(command);
+			return super.schedule(new Runnable() {
+				@Override
+				public void run() {
+				}
+			}, 1, TimeUnit.DAYS);
+		}
+
+		void runLast() {
+			tasks.get(tasks.size() - 1).run();
+		}
+	}
+
+	private final ManualScheduler scheduler = new ManualScheduler();
+
+	@After
+	public void shutdownScheduler() {
+		scheduler.shutdownNow();
+	}
+
+	private static final class Recorder implements LicenseValidationAction {
+		final List<LicenseValidationResult> results = new CopyOnWriteArrayList<LicenseValidationResult>();
+
+		@Override
+		public void licenseValidated(LicenseValidationResult result) {
+			results.add(result);
+		}
+	}
+
+	private static Callable<LicenseValidationResult> returning(final LicenseValidationResult... results) {
+		final AtomicInteger calls = new AtomicInteger();
+		return new Callable<LicenseValidationResult>() {
+			@Override
+			public LicenseValidationResult call() {
+				return results[Math.min(calls.getAndIncrement(), results.length - 1)];
+			}
+		};
+	}
+
+	@Test
+	public void testRefreshesAndNotifiesChanges() {
+		Recorder recorder = new Recorder();
+		BackgroundRefresher refresher = new BackgroundRefresher(returning(VALID, VALID, EXPIRED), scheduler, 10, TimeUnit.MILLISECONDS, 0.25, recorder);
+
+		refresher.start(VALID);
+		assertTrue(refresher.isRunning());
+		assertEquals(1, scheduler.tasks.size());
+
+		for (int i = 0; i < 3; i++) {
+			scheduler.runLast();
+		}
+		assertEquals(4, scheduler.tasks.size());
+		assertEquals(Collections.singletonList(EXPIRED), recorder.results);
+		assertSame(EXPIRED, refresher.getLastResult());
+	}
+
+	@Test
+	public void testDelayHasJitter() {
+		BackgroundRefresher refresher = new BackgroundRefresher(returning(VALID), scheduler, 100, TimeUnit.MILLISECONDS, 0.25, null);
+		long period = TimeUnit.MILLISECONDS.toNanos(100);
+		for (int i = 0; i < 1000; i++) {
+			long delay = refresher.nextDelay();
+			assertTrue(delay <= period);
+			assertTrue(delay >= period * 3 / 4);
+		}
+	}
+
+	@Test
+	public void testStaleChainEndsAfterStopAndStart() {
+		BackgroundRefresher refresher = new BackgroundRefresher(returning(VALID), scheduler, 10, TimeUnit.MILLISECONDS, 0.0, null);
+		refresher.start(VALID);
+		Runnable stale = scheduler.tasks.get(0);
+
+		refresher.stop();
+		assertFalse(refresher.isRunning());
+		refresher.start(VALID);
+		assertEquals(2, scheduler.tasks.size());
+
+		stale.run();
+		assertEquals(2, scheduler.tasks.size());
+
+		scheduler.runLast();
+		assertEquals(3, scheduler.tasks.size());
+	}
+
+	@Test
+	public void testRefreshInProgressDuringStopAndStartDoesNotScheduleSecondChain() {
+		final AtomicReference<BackgroundRefresher> refresher = new AtomicReference<BackgroundRefresher>();
+		final AtomicInteger calls = new AtomicInteger();
+		refresher.set(new BackgroundRefresher(new Callable<LicenseValidationResult>() {
+			@Override
+			public LicenseValidationResult call() {
+				if (calls.incrementAndGet() == 1) {
+					refresher.get().stop();
+					refresher.get().start(VALID);
+				}
+				return EXPIRED;
+			}
+		}, scheduler, 10, TimeUnit.MILLISECONDS, 0.0, null));
+
+		refresher.get().start(VALID);
+		scheduler.runLast();
+
+		// the first chain ended, and only the chain of the second start is scheduled
+		assertEquals(2, scheduler.tasks.size());
+		// the result of the stale refresh is discarded
+		assertSame(VALID, refresher.get().getLastResult());
+		assertTrue(refresher.get().isRunning());
+	}
+
+	@Test
+	public void testRejectedStartClearsRunning() {
+		scheduler.rejecting = true;
+		BackgroundRefresher refresher = new BackgroundRefresher(returning(VALID), scheduler, 10, TimeUnit.MILLISECONDS, 0.25, null);
+
+		refresher.start(VALID);
+		assertFalse(refresher.isRunning());
+	}
+
+	@Test
+	public void testRejectedRescheduleClearsRunning() {
+		BackgroundRefresher refresher = new BackgroundRefresher(returning(VALID), scheduler, 10, TimeUnit.MILLISECONDS, 0.25, null);
+		refresher.start(VALID);
+		assertTrue(refresher.isRunning());
+
+		scheduler.rejecting = true;
+		scheduler.runLast();
+		assertFalse(refresher.isRunning());
+
+		scheduler.rejecting = false;
+		refresher.start(VALID);
+		assertTrue(refresher.isRunning());
+	}
+
+	@Test
+	public void testThrowingSynchronizationDoesNotStopRefreshes() {
+		final AtomicInteger calls = new AtomicInteger();
+		Recorder recorder = new Recorder();
+		BackgroundRefresher refresher = new BackgroundRefresher(new Callable<LicenseValidationResult>() {
+			@Override
+			public LicenseValidationResult call() throws Exception {
+				switch (calls.incrementAndGet()) {
+					case 1:
+						throw new AssertionError("failing synchronization");
+					case 2:
+						throw new Exception("failing synchronization");
+					default:
+						return VALID;
+				}
+			}
+		}, scheduler, 10, TimeUnit.MILLISECONDS, 0.25, recorder);
+
+		refresher.start(VALID);
+		scheduler.runLast();
+		assertSame(ERROR, refresher.getLastResult());
+		scheduler.runLast();
+		scheduler.runLast();
+
+		assertTrue(refresher.isRunning());
+		assertEquals(4, scheduler.tasks.size());
+		assertEquals(Arrays.asList(ERROR, VALID), recorder.results);
+	}
+
+	@Test
+	public void testThrowingListenerDoesNotStopRefreshes() {
+		BackgroundRefresher refresher = new BackgroundRefresher(returning(EXPIRED, VALID), scheduler, 10, TimeUnit.MILLISECONDS, 0.25, new LicenseValidationAction() {
+			@Override
+			public void licenseValidated(LicenseValidationResult result) {
+				throw new NoClassDefFoundError("failing listener");
+			}
+		});
+
+		refresher.start(VALID);
+		scheduler.runLast();
+		scheduler.runLast();
+
+		assertTrue(refresher.isRunning());
+		assertEquals(3, scheduler.tasks.size());
+		assertSame(VALID, refresher.getLastResult());
+	}
+}
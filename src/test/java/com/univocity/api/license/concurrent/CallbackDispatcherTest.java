@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.concurrent;
+
+import com.univocity.api.license.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+import static com.univocity.api.license.concurrent.CallbackDispatcher.RejectionPolicy.*;
+import static org.junit.Assert.*;
+
+public class CallbackDispatcherTest {
+
+	private final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+
+	private final ThreadFactory threadFactory = new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = CallbackDispatcher.namedThreadFactory("dispatcher-test").newThread(r);
+			threads.add(thread);
+			return thread;
+		}
+	};
+
+	private static LicenseValidationAction countDown(final CountDownLatch latch) {
+		return new LicenseValidationAction() {
+			@Override
+			public void licenseValidated(LicenseValidationResult result) {
+				latch.countDown();
+			}
+		};
+	}
+
+	@Test
+	public void testCallbacksRunInDispatcherThread() throws Exception {
+		final CallbackDispatcher dispatcher = new CallbackDispatcher(threadFactory, 16, DISCARD);
+		final AtomicReference<Thread> callbackThread = new AtomicReference<Thread>();
+		final CountDownLatch done = new CountDownLatch(1);
+
+		assertTrue(dispatcher.dispatch(new LicenseValidationAction() {
+			@Override
+			public void licenseValidated(LicenseValidationResult result) {
+				callbackThread.set(Thread.currentThread());
+				assertTrue(dispatcher.isDispatcherThread());
+				done.countDown();
+			}
+		}, VALID));
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertSame(threads.get(0), callbackThread.get());
+		assertFalse(dispatcher.isDispatcherThread());
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void testFailingCallbacksDontStopDispatcher() throws Exception {
+		CallbackDispatcher dispatcher = new CallbackDispatcher(threadFactory, 16, DISCARD);
+		CountDownLatch done = new CountDownLatch(2);
+		LicenseValidationAction failing = new LicenseValidationAction() {
+			@Override
+			public void licenseValidated(LicenseValidationResult result) {
+				throw new AssertionError("callback failure");
+			}
+		};
+
+		dispatcher.dispatch(Arrays.asList(failing, countDown(done)), VALID);
+		dispatcher.dispatch(failing, VALID);
+		dispatcher.dispatch(countDown(done), VALID);
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, threads.size());
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void testBlockingDispatchFromCallbackDoesNotDeadlock() throws Exception {
+		final CallbackDispatcher dispatcher = new CallbackDispatcher(threadFactory, 1, BLOCK);
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicInteger accepted = new AtomicInteger();
+
+		dispatcher.dispatch(new LicenseValidationAction() {
+			@Override
+			public void licenseValidated(LicenseValidationResult result) {
+				for (int i = 0; i < 3; i++) {
+					if (dispatcher.dispatch(countDown(new CountDownLatch(1)), VALID)) {
+						accepted.incrementAndGet();
+					}
+				}
+				done.countDown();
+			}
+		}, VALID);
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, accepted.get());
+		assertEquals(2, dispatcher.getRejectedCount());
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void testShutdownTerminatesThread() throws Exception {
+		CallbackDispatcher dispatcher = new CallbackDispatcher(threadFactory, 16, DISCARD);
+		CountDownLatch done = new CountDownLatch(1);
+		dispatcher.dispatch(countDown(done), VALID);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+
+		dispatcher.shutdown();
+		threads.get(0).join(1000L);
+		assertFalse(threads.get(0).isAlive());
+
+		assertFalse(dispatcher.dispatch(countDown(done), VALID));
+		assertEquals(1, dispatcher.getRejectedCount());
+	}
+
+	@Test
+	public void testNotificationsAcceptedDuringShutdownAreDelivered() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			final CallbackDispatcher dispatcher = new CallbackDispatcher(threadFactory, 1024, DISCARD);
+			final AtomicInteger delivered = new AtomicInteger();
+			final AtomicInteger accepted = new AtomicInteger();
+			final LicenseValidationAction count = new LicenseValidationAction() {
+				@Override
+				public void licenseValidated(LicenseValidationResult result) {
+					delivered.incrementAndGet();
+				}
+			};
+
+			Thread[] producers = new Thread[4];
+			for (int i = 0; i < producers.length; i++) {
+				producers[i] = new Thread() {
+					@Override
+					public void run() {
+						for (int j = 0; j < 200; j++) {
+							if (dispatcher.dispatch(count, VALID)) {
+								accepted.incrementAndGet();
+							}
+						}
+					}
+				};
+				producers[i].start();
+			}
+			Thread.sleep(1L);
+			dispatcher.shutdown();
+			for (Thread producer : producers) {
+				producer.join();
+			}
+			for (Thread thread : threads) {
+				thread.join(5000L);
+			}
+			assertEquals(accepted.get(), delivered.get());
+			assertEquals(800 - accepted.get(), dispatcher.getRejectedCount());
+			threads.clear();
+		}
+	}
+}
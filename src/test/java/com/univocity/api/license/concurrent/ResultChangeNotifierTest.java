@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.concurrent;
+
+import com.univocity.api.license.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+import static org.junit.Assert.*;
+
+public class ResultChangeNotifierTest {
+
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private static final Executor REJECTING = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			throw new RejectedExecutionException();
+		}
+	};
+
+	private static final class Recorder implements LicenseValidationAction {
+		final List<LicenseValidationResult> results = new CopyOnWriteArrayList<LicenseValidationResult>();
+
+		@Override
+		public void licenseValidated(LicenseValidationResult result) {
+			results.add(result);
+		}
+	}
+
+	@Test
+	public void testNotifiesOnlyChanges() {
+		ResultChangeNotifier notifier = new ResultChangeNotifier();
+		Recorder recorder = new Recorder();
+		notifier.subscribe(recorder);
+
+		assertTrue(notifier.publish(VALID, DIRECT));
+		assertFalse(notifier.publish(VALID, DIRECT));
+		assertTrue(notifier.publish(EXPIRED, DIRECT));
+		assertFalse(notifier.publish(EXPIRED, DIRECT));
+		assertTrue(notifier.publish(VALID, DIRECT));
+
+		assertEquals(Arrays.asList(VALID, EXPIRED, VALID), recorder.results);
+		assertSame(VALID, notifier.getLastResult());
+	}
+
+	@Test
+	public void testNoListeners() {
+		ResultChangeNotifier notifier = new ResultChangeNotifier();
+		assertFalse(notifier.publish(VALID, DIRECT));
+		assertSame(VALID, notifier.getLastResult());
+
+		Recorder recorder = new Recorder();
+		notifier.subscribe(recorder);
+		assertFalse(notifier.publish(VALID, DIRECT));
+		assertTrue(notifier.publish(INVALID, DIRECT));
+		assertEquals(Collections.singletonList(INVALID), recorder.results);
+	}
+
+	@Test
+	public void testFailingListenerDoesNotAffectOthers() {
+		ResultChangeNotifier notifier = new ResultChangeNotifier();
+		notifier.subscribe(new LicenseValidationAction() {
+			@Override
+			public void licenseValidated(LicenseValidationResult result) {
+				throw new IllegalStateException("failing listener");
+			}
+		});
+		Recorder recorder = new Recorder();
+		notifier.subscribe(recorder);
+
+		assertTrue(notifier.publish(VALID, DIRECT));
+		assertEquals(Collections.singletonList(VALID), recorder.results);
+	}
+
+	@Test
+	public void testRejectedExecutionRestoresLastResult() {
+		ResultChangeNotifier notifier = new ResultChangeNotifier();
+		Recorder recorder = new Recorder();
+		notifier.subscribe(recorder);
+
+		assertTrue(notifier.publish(VALID, DIRECT));
+		assertFalse(notifier.publish(EXPIRED, REJECTING));
+		assertSame(VALID, notifier.getLastResult());
+
+		assertTrue(notifier.publish(EXPIRED, DIRECT));
+		assertEquals(Arrays.asList(VALID, EXPIRED), recorder.results);
+	}
+
+	@Test
+	public void testRejectedDispatchRestoresLastResult() {
+		ResultChangeNotifier notifier = new ResultChangeNotifier();
+		notifier.subscribe(new Recorder());
+
+		CallbackDispatcher dispatcher = new CallbackDispatcher("notifier-test", 1, CallbackDispatcher.RejectionPolicy.DISCARD);
+		dispatcher.shutdown();
+
+		assertFalse(notifier.publish(VALID, dispatcher));
+		assertNull(notifier.getLastResult());
+		assertEquals(1, dispatcher.getRejectedCount());
+	}
+
+	@Test
+	public void testSerialDeliveryWithManyThreads() throws Exception {
+		final ResultChangeNotifier notifier = new ResultChangeNotifier();
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicBoolean overlapped = new AtomicBoolean();
+		final List<LicenseValidationResult> results = new CopyOnWriteArrayList<LicenseValidationResult>();
+		notifier.subscribe(new LicenseValidationAction() {
+			@Override
+			public void licenseValidated(LicenseValidationResult result) {
+				if (running.incrementAndGet() > 1) {
+					overlapped.set(true);
+				}
+				results.add(result);
+				Thread.yield();
+				running.decrementAndGet();
+			}
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				assertTrue(notifier.publish(i % 2 == 0 ? VALID : EXPIRED, executor));
+			}
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+			assertFalse(overlapped.get());
+			assertNoRepeatedResults(results);
+			assertSame(EXPIRED, results.get(results.size() - 1));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testLastDeliveredIsLastResultWithManyPublishers() throws Exception {
+		final LicenseValidationResult[] values = {VALID, EXPIRED, INVALID, DISABLED};
+		for (int round = 0; round < 20; round++) {
+			final ResultChangeNotifier notifier = new ResultChangeNotifier();
+			final Recorder recorder = new Recorder();
+			notifier.subscribe(recorder);
+
+			final ExecutorService executor = Executors.newFixedThreadPool(4);
+			final CountDownLatch start = new CountDownLatch(1);
+			Thread[] publishers = new Thread[4];
+			for (int t = 0; t < publishers.length; t++) {
+				final int offset = t;
+				publishers[t] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						for (int i = 0; i < 500; i++) {
+							notifier.publish(values[(i + offset) % values.length], executor);
+						}
+					}
+				};
+				publishers[t].start();
+			}
+			start.countDown();
+			for (Thread publisher : publishers) {
+				publisher.join();
+			}
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+			assertNoRepeatedResults(recorder.results);
+			assertSame(notifier.getLastResult(), recorder.results.get(recorder.results.size() - 1));
+		}
+	}
+
+	@Test
+	public void testDiscardedNotificationIsMadeUpByNextChange() throws Exception {
+		CallbackDispatcher dispatcher = new CallbackDispatcher("notifier-test", 1, CallbackDispatcher.RejectionPolicy.DISCARD_OLDEST);
+		try {
+			final CountDownLatch blocked = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+			dispatcher.dispatch(new LicenseValidationAction() {
+				@Override
+				public void licenseValidated(LicenseValidationResult result) {
+					blocked.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						// done
+					}
+				}
+			}, VALID);
+			assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+			ResultChangeNotifier notifier = new ResultChangeNotifier();
+			final CountDownLatch delivered = new CountDownLatch(1);
+			final Recorder recorder = new Recorder();
+			notifier.subscribe(recorder);
+			notifier.subscribe(new LicenseValidationAction() {
+				@Override
+				public void licenseValidated(LicenseValidationResult result) {
+					if (result == INVALID) {
+						delivered.countDown();
+					}
+				}
+			});
+
+			assertTrue(notifier.publish(VALID, dispatcher));
+			// pushes the notification of VALID out of the queue
+			dispatcher.dispatch(new Recorder(), ERROR);
+			assertTrue(notifier.publish(EXPIRED, dispatcher));
+			assertTrue(notifier.publish(INVALID, dispatcher));
+			release.countDown();
+
+			assertTrue(delivered.await(5, TimeUnit.SECONDS));
+			assertEquals(Collections.singletonList(INVALID), recorder.results);
+			assertSame(INVALID, notifier.getLastResult());
+		} finally {
+			dispatcher.shutdown();
+		}
+	}
+
+	private static void assertNoRepeatedResults(List<LicenseValidationResult> results) {
+		assertFalse(results.isEmpty());
+		for (int i = 1; i < results.size(); i++) {
+			assertNotSame(results.get(i - 1), results.get(i));
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.concurrent;
+
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+	private final SingleFlight<String, Integer> singleFlight = new SingleFlight<String, Integer>();
+	private final AtomicInteger executions = new AtomicInteger();
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final Callable<Integer> blockingOperation = new Callable<Integer>() {
+		@Override
+		public Integer call() throws Exception {
+			release.await(5, TimeUnit.SECONDS);
+			return executions.incrementAndGet();
+		}
+	};
+
+	private static final Executor REJECT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			throw new RejectedExecutionException("rejected");
+		}
+	};
+
+	private ExecutorService pool;
+
+	@Before
+	public void setUp() {
+		pool = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentExecutionsAreCoalesced() throws Exception {
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < 4; i++) {
+			results.add(pool.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return singleFlight.execute("key", blockingOperation);
+				}
+			}));
+		}
+		while (singleFlight.inFlight("key") == null) {
+			Thread.sleep(1L);
+		}
+		Thread.sleep(50L);
+		release.countDown();
+
+		for (Future<Integer> result : results) {
+			assertEquals(Integer.valueOf(1), result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, executions.get());
+		assertEquals(0, singleFlight.size());
+	}
+
+	@Test
+	public void testSubmitReturnsOperationInFlight() throws Exception {
+		Future<Integer> first = singleFlight.submit("key", blockingOperation, pool);
+		Future<Integer> second = singleFlight.submit("key", blockingOperation, pool);
+		assertSame(first, second);
+		assertSame(first, singleFlight.inFlight("key"));
+		assertEquals(1, singleFlight.size());
+
+		release.countDown();
+		assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+		assertEquals(1, executions.get());
+	}
+
+	@Test
+	public void testCancelDoesNotAffectOtherCallers() throws Exception {
+		Future<Integer> first = singleFlight.submit("key", blockingOperation, pool);
+		Future<Integer> second = singleFlight.submit("key", blockingOperation, pool);
+
+		assertFalse(first.cancel(true));
+		assertFalse(first.isCancelled());
+
+		release.countDown();
+		assertEquals(Integer.valueOf(1), second.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testRejectedSubmissionFailsAndIsRemoved() throws Exception {
+		try {
+			singleFlight.submit("key", blockingOperation, REJECT);
+			fail("Expected RejectedExecutionException");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		assertNull(singleFlight.inFlight("key"));
+		assertEquals(0, singleFlight.size());
+
+		release.countDown();
+		Future<Integer> retry = singleFlight.submit("key", blockingOperation, pool);
+		assertEquals(Integer.valueOf(1), retry.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testWaitersOfRejectedSubmissionFail() throws Exception {
+		final CountDownLatch executing = new CountDownLatch(1);
+		final AtomicReference<Future<Integer>> waiter = new AtomicReference<Future<Integer>>();
+		Executor slowReject = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				waiter.set(singleFlight.inFlight("key"));
+				executing.countDown();
+				throw new RejectedExecutionException("rejected");
+			}
+		};
+
+		try {
+			singleFlight.submit("key", blockingOperation, slowReject);
+			fail("Expected RejectedExecutionException");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		assertTrue(executing.await(5, TimeUnit.SECONDS));
+		try {
+			waiter.get().get(5, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import org.junit.*;
+
+import java.lang.ref.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class InternerTest {
+
+	private static Product product(String domain) {
+		return new Product(1L, "interned", "key", new ProductVariant(2L, "pro"), new ProductVersion("1.0.0", "2017-03-05"), new Store(3L, "store", domain));
+	}
+
+	@Test
+	public void testEqualStateResolvesToSameInstance() {
+		Product product = product("license.example.com").intern();
+		Product same = product("license.example.com").intern();
+		assertSame(product, same);
+		assertSame(product, product.intern());
+		assertSame(product.variant(), new ProductVariant(2L, "pro").intern());
+		assertSame(product.version(), new ProductVersion("1.0.0", "2017-03-05").intern());
+		assertSame(product.store(), new Store(3L, "store", "license.example.com").intern());
+	}
+
+	@Test
+	public void testStateIgnoredByEqualsIsNotMerged() {
+		Product product = product("license.example.com").intern();
+		Product otherDomain = product("other.example.com").intern();
+		assertNotSame(product, otherDomain);
+		assertEquals("other.example.com", otherDomain.store().licenseServerDomain());
+
+		assertNotSame(new ProductVersion("1.0.0", "2017-03-05").intern(), new ProductVersion("1.0.0", "2017-03-06").intern());
+	}
+
+	@Test
+	public void testSubclassesAreReturnedUnchanged() {
+		Product subclass = new Product(1L, "interned", "key", new ProductVariant(2L, "pro"), new ProductVersion("1.0.0", "2017-03-05"), new Store(3L, "store", "license.example.com")) {
+		};
+		assertSame(subclass, subclass.intern());
+		assertNotSame(subclass, product("license.example.com").intern());
+	}
+
+	@Test
+	public void testUnusedInstancesAreDiscarded() throws Exception {
+		Interner<Object> interner = new Interner<Object>();
+		Object value = new Object();
+		assertSame(value, interner.intern(Arrays.asList("state", 1), value));
+		assertSame(value, interner.intern(Arrays.asList("state", 1), new Object()));
+		assertEquals(1, interner.size());
+
+		WeakReference<Object> reference = new WeakReference<Object>(value);
+		value = null;
+		for (int i = 0; i < 100 && (reference.get() != null || interner.size() > 0); i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+		assertEquals(0, interner.size());
+		assertNull(interner.get(Arrays.asList("state", 1)));
+
+		Object replacement = new Object();
+		assertSame(replacement, interner.intern(Arrays.asList("state", 1), replacement));
+		assertSame(replacement, interner.get(Arrays.asList("state", 1)));
+	}
+}
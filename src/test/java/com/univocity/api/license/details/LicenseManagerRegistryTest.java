@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import com.univocity.api.*;
+import com.univocity.api.license.*;
+import org.junit.*;
+
+import java.io.*;
+import java.lang.ref.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class LicenseManagerRegistryTest {
+
+	private static final Map<String, AtomicInteger> builds = new ConcurrentHashMap<String, AtomicInteger>();
+
+	private static LicenseManager newManager(final String builtBy) {
+		return (LicenseManager) java.lang.reflect.Proxy.newProxyInstance(LicenseManager.class.getClassLoader(), new Class[]{LicenseManager.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				} else if (name.equals("equals")) {
+					return proxy == args[0];
+				} else if (name.equals("toString")) {
+					return builtBy;
+				}
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+
+	/**
+	 * Handles products of a given store, counting how many license managers were built for each product name.
+	 */
+	private static class StoreProvider implements LicenseManagerProvider {
+		private final String storeName;
+		private final String providerName;
+
+		StoreProvider(String storeName, String providerName) {
+			this.storeName = storeName;
+			this.providerName = providerName;
+		}
+
+		@Override
+		public LicenseManager newLicenseManager(Product product) {
+			if (product.store() == null || !storeName.equals(product.store().name())) {
+				return null;
+			}
+			AtomicInteger count = builds.get(product.name());
+			if (count == null) {
+				builds.put(product.name(), count = new AtomicInteger());
+			}
+			count.incrementAndGet();
+			return build(product);
+		}
+
+		LicenseManager build(Product product) {
+			return newManager(providerName);
+		}
+	}
+
+	/**
+	 * Provider only visible through the context class loader. See {@link #testDiscoversProvidersOfContextClassLoader()}.
+	 */
+	public static final class ContextProvider extends StoreProvider {
+		public ContextProvider() {
+			super("registry-test-context", "context");
+		}
+	}
+
+	@BeforeClass
+	public static void registerProviders() {
+		Product.registerLicenseManagerProvider(new StoreProvider("registry-test", "first"));
+		Product.registerLicenseManagerProvider(new StoreProvider("registry-test", "second"));
+		Product.registerLicenseManagerProvider(new StoreProvider("registry-test-second", "second"));
+		Product.registerLicenseManagerProvider(new StoreProvider("registry-test-slow", "slow") {
+			@Override
+			LicenseManager build(Product product) {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.build(product);
+			}
+		});
+		Product.registerLicenseManagerProvider(new StoreProvider("registry-test-reentrant", "reentrant") {
+			@Override
+			LicenseManager build(Product product) {
+				return product.licenseManager();
+			}
+		});
+	}
+
+	private static Product product(String name, String storeName) {
+		return new Product(1L, name, "key", null, new ProductVersion("1.0.0", "2017-03-05"), new Store(3L, storeName, "license.example.com"));
+	}
+
+	private static int buildCount(String productName) {
+		AtomicInteger count = builds.get(productName);
+		return count == null ? 0 : count.get();
+	}
+
+	@Test
+	public void testProductsWithSameStateShareManager() {
+		LicenseManager manager = LicenseManagerRegistry.get(product("shared", "registry-test"));
+		assertSame(manager, LicenseManagerRegistry.get(product("shared", "registry-test")));
+		assertSame(manager, product("shared", "registry-test").licenseManager());
+		assertEquals(1, buildCount("shared"));
+	}
+
+	@Test
+	public void testProvidersAreTriedInRegistrationOrder() {
+		assertEquals("first", LicenseManagerRegistry.get(product("ordered", "registry-test")).toString());
+		// the first provider returns null for this store, so the next one builds the manager
+		assertEquals("second", LicenseManagerRegistry.get(product("ordered", "registry-test-second")).toString());
+	}
+
+	@Test
+	public void testBuildsOnceUnderConcurrentRequests() throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<LicenseManager> managers = new CopyOnWriteArrayList<LicenseManager>();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					managers.add(LicenseManagerRegistry.get(product("concurrent", "registry-test-slow")));
+				}
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(threads.length, managers.size());
+		for (LicenseManager manager : managers) {
+			assertSame(managers.get(0), manager);
+		}
+		assertEquals(1, buildCount("concurrent"));
+	}
+
+	@Test
+	public void testReentrantRequestFails() throws Exception {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					LicenseManagerRegistry.get(product("reentrant", "registry-test-reentrant"));
+				} catch (Throwable e) {
+					failure.set(e);
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+		thread.join(5000);
+
+		assertFalse("Re-entrant request blocked", thread.isAlive());
+		assertTrue(failure.get() instanceof IllegalStateException);
+		assertEquals(1, buildCount("reentrant"));
+
+		// the failed construction is not kept in the registry
+		try {
+			LicenseManagerRegistry.get(product("reentrant", "registry-test-reentrant"));
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(2, buildCount("reentrant"));
+	}
+
+	@Test
+	public void testCollectedManagerIsExpunged() throws Exception {
+		LicenseManager manager = LicenseManagerRegistry.get(product("collected", "registry-test"));
+		int size = LicenseManagerRegistry.size();
+		WeakReference<LicenseManager> reference = new WeakReference<LicenseManager>(manager);
+		manager = null;
+
+		for (int i = 0; i < 100 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+		for (int i = 0; i < 100 && LicenseManagerRegistry.size() >= size; i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(LicenseManagerRegistry.size() < size);
+
+		assertNotNull(LicenseManagerRegistry.get(product("collected", "registry-test")));
+		assertEquals(2, buildCount("collected"));
+	}
+
+	@Test
+	public void testFallsBackToBuilder() {
+		Product product = product("unhandled", "registry-test-unhandled");
+		Object expected;
+		try {
+			expected = Builder.build(LicenseManager.class, product);
+		} catch (RuntimeException e) {
+			expected = e.getClass();
+		}
+
+		Object actual;
+		try {
+			actual = LicenseManagerRegistry.get(product);
+		} catch (RuntimeException e) {
+			actual = e.getClass();
+		}
+		if (expected instanceof LicenseManager) {
+			assertEquals(expected.getClass(), actual.getClass());
+		} else {
+			assertEquals(expected, actual);
+		}
+		assertEquals(0, buildCount("unhandled"));
+	}
+
+	@Test
+	public void testDiscoversProvidersOfContextClassLoader() throws Exception {
+		File root = File.createTempFile("providers", "");
+		root.delete();
+		File services = new File(root, "META-INF/services");
+		assertTrue(services.mkdirs());
+		File config = new File(services, LicenseManagerProvider.class.getName());
+		Writer writer = new OutputStreamWriter(new FileOutputStream(config), "UTF-8");
+		try {
+			writer.write(ContextProvider.class.getName() + "\n");
+		} finally {
+			writer.close();
+		}
+
+		Product product = product("context", "registry-test-context");
+		ClassLoader original = Thread.currentThread().getContextClassLoader();
+		URLClassLoader contextClassLoader = new URLClassLoader(new URL[]{root.toURI().toURL()}, LicenseManagerRegistryTest.class.getClassLoader());
+		Thread.currentThread().setContextClassLoader(contextClassLoader);
+		try {
+			assertEquals("context", LicenseManagerRegistry.get(product).toString());
+		} finally {
+			Thread.currentThread().setContextClassLoader(original);
+			config.delete();
+			services.delete();
+			services.getParentFile().delete();
+			root.delete();
+		}
+		assertEquals(1, buildCount("context"));
+	}
+}
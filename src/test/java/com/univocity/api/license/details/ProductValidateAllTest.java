@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.remote.*;
+import org.junit.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ProductValidateAllTest {
+
+	private static final String STORE_NAME = "validate-all-test";
+
+	private static final List<List<Product>> batches = new CopyOnWriteArrayList<List<Product>>();
+
+	/**
+	 * Creates license managers that record each batch given to {@code validateAll}. Products with an ID of 100 or more
+	 * connect through a proxy.
+	 */
+	private static final LicenseManagerProvider PROVIDER = new LicenseManagerProvider() {
+		@Override
+		public LicenseManager newLicenseManager(final Product product) {
+			if (product.store() == null || !STORE_NAME.equals(product.store().name())) {
+				return null;
+			}
+			final String proxyHost = product.id() >= 100 ? "proxy.example.com" : null;
+			return (LicenseManager) java.lang.reflect.Proxy.newProxyInstance(LicenseManager.class.getClassLoader(), new Class[]{LicenseManager.class}, new InvocationHandler() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					String name = method.getName();
+					if (name.equals("validateAll")) {
+						List<Product> batch = new ArrayList<Product>((Collection<Product>) args[0]);
+						batches.add(batch);
+						Map<Product, LicenseValidationResult> out = new LinkedHashMap<Product, LicenseValidationResult>();
+						for (Product p : batch) {
+							out.put(p, p.id() % 2 == 0 ? LicenseValidationResult.VALID : LicenseValidationResult.EXPIRED);
+						}
+						return out;
+					} else if (name.equals("getProxyHost")) {
+						return proxyHost;
+					} else if (name.equals("getProxyPort")) {
+						return proxyHost == null ? 0 : 3128;
+					} else if (name.equals("getConnectionSettings")) {
+						return ConnectionSettings.DEFAULT;
+					} else if (name.equals("getProduct")) {
+						return product;
+					} else if (name.equals("getProxy") || name.equals("getProxyUser")) {
+						return null;
+					} else if (name.equals("hashCode")) {
+						return System.identityHashCode(proxy);
+					} else if (name.equals("equals")) {
+						return proxy == args[0];
+					} else if (name.equals("toString")) {
+						return "License manager of " + product;
+					}
+					throw new UnsupportedOperationException(name);
+				}
+			});
+		}
+	};
+
+	@BeforeClass
+	public static void registerProvider() {
+		Product.registerLicenseManagerProvider(PROVIDER);
+	}
+
+	@Before
+	public void clearBatches() {
+		batches.clear();
+	}
+
+	private static Product product(long id, String domain) {
+		Store store = new Store(7L, STORE_NAME, domain);
+		return new Product(id, "product-" + id, "key-" + id, null, new ProductVersion("1.0.0", "2017-03-05"), store);
+	}
+
+	@Test
+	public void testProductsOfSameDomainAreValidatedInOneBatch() {
+		List<Product> products = Arrays.asList(product(1, "a.example.com"), product(2, "a.example.com"), product(3, "a.example.com"));
+
+		Map<Product, LicenseValidationResult> results = Product.validateAll(products);
+
+		assertEquals(1, batches.size());
+		assertEquals(products, batches.get(0));
+		assertEquals(products, new ArrayList<Product>(results.keySet()));
+		assertEquals(LicenseValidationResult.EXPIRED, results.get(products.get(0)));
+		assertEquals(LicenseValidationResult.VALID, results.get(products.get(1)));
+		assertEquals(LicenseValidationResult.EXPIRED, results.get(products.get(2)));
+	}
+
+	@Test
+	public void testProductsAreGroupedByDomain() {
+		Product a1 = product(11, "a.example.com");
+		Product b1 = product(12, "b.example.com");
+		Product a2 = product(13, "a.example.com");
+
+		Map<Product, LicenseValidationResult> results = Product.validateAll(Arrays.asList(a1, b1, a2));
+
+		assertEquals(2, batches.size());
+		assertEquals(Arrays.asList(a1, a2), batches.get(0));
+		assertEquals(Collections.singletonList(b1), batches.get(1));
+		assertEquals(Arrays.asList(a1, b1, a2), new ArrayList<Product>(results.keySet()));
+	}
+
+	@Test
+	public void testProductsAreGroupedByProxy() {
+		Product direct = product(21, "c.example.com");
+		Product proxied = product(121, "c.example.com");
+
+		Product.validateAll(Arrays.asList(direct, proxied));
+
+		assertEquals(2, batches.size());
+		assertEquals(Collections.singletonList(direct), batches.get(0));
+		assertEquals(Collections.singletonList(proxied), batches.get(1));
+	}
+}
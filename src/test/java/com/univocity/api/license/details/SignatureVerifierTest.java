@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.details;
+
+import org.junit.*;
+
+import java.nio.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class SignatureVerifierTest {
+
+	private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+	private static KeyPair keyPair;
+
+	@BeforeClass
+	public static void generateKeys() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(1024);
+		keyPair = generator.generateKeyPair();
+	}
+
+	private static String base64(byte[] bytes) {
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < bytes.length; i += 3) {
+			int b0 = bytes[i] & 0xFF;
+			int b1 = i + 1 < bytes.length ? bytes[i + 1] & 0xFF : 0;
+			int b2 = i + 2 < bytes.length ? bytes[i + 2] & 0xFF : 0;
+			out.append(ALPHABET.charAt(b0 >> 2));
+			out.append(ALPHABET.charAt(((b0 & 0x3) << 4) | (b1 >> 4)));
+			out.append(i + 1 < bytes.length ? ALPHABET.charAt(((b1 & 0xF) << 2) | (b2 >> 6)) : '=');
+			out.append(i + 2 < bytes.length ? ALPHABET.charAt(b2 & 0x3F) : '=');
+		}
+		return out.toString();
+	}
+
+	private static String encodedKey() {
+		return base64(keyPair.getPublic().getEncoded());
+	}
+
+	private static String pem(String base64, String lineSeparator) {
+		StringBuilder out = new StringBuilder("-----BEGIN PUBLIC KEY-----").append(lineSeparator);
+		for (int i = 0; i < base64.length(); i += 64) {
+			out.append(base64, i, Math.min(base64.length(), i + 64)).append(lineSeparator);
+		}
+		return out.append("-----END PUBLIC KEY-----").append(lineSeparator).toString();
+	}
+
+	private static byte[] sign(byte[] data) throws Exception {
+		Signature signature = Signature.getInstance("SHA256withRSA");
+		signature.initSign(keyPair.getPrivate());
+		signature.update(data);
+		return signature.sign();
+	}
+
+	private static void assertInvalid(String value) {
+		try {
+			SignatureVerifier.decodeBase64(value);
+			fail("Expected '" + value + "' to be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testDecodesRawKey() {
+		assertEquals(keyPair.getPublic(), SignatureVerifier.decodePublicKey(encodedKey()));
+	}
+
+	@Test
+	public void testDecodesUrlSafeKey() {
+		String urlSafe = encodedKey().replace('+', '-').replace('/', '_').replace("=", "");
+		assertEquals(keyPair.getPublic(), SignatureVerifier.decodePublicKey(urlSafe));
+	}
+
+	@Test
+	public void testDecodesMultiLinePem() {
+		assertEquals(keyPair.getPublic(), SignatureVerifier.decodePublicKey(pem(encodedKey(), "\n")));
+		assertEquals(keyPair.getPublic(), SignatureVerifier.decodePublicKey(pem(encodedKey(), "\r\n")));
+	}
+
+	@Test
+	public void testDecodesSingleLinePem() {
+		String pem = "-----BEGIN PUBLIC KEY-----" + encodedKey() + "-----END PUBLIC KEY-----";
+		assertEquals(keyPair.getPublic(), SignatureVerifier.decodePublicKey(pem));
+	}
+
+	@Test
+	public void testPadding() {
+		assertArrayEquals("M".getBytes(), SignatureVerifier.decodeBase64("TQ=="));
+		assertArrayEquals("M".getBytes(), SignatureVerifier.decodeBase64("TQ"));
+		assertArrayEquals("Ma".getBytes(), SignatureVerifier.decodeBase64("TWE="));
+		assertArrayEquals("Ma".getBytes(), SignatureVerifier.decodeBase64("TWE"));
+		assertArrayEquals("Man".getBytes(), SignatureVerifier.decodeBase64("TWFu"));
+		assertArrayEquals("Man".getBytes(), SignatureVerifier.decodeBase64(" TW\nFu "));
+
+		assertInvalid("TQ=");
+		assertInvalid("TWE==");
+		assertInvalid("TWFu=");
+		assertInvalid("TWFuT");
+		assertInvalid("TQ==TQ==");
+	}
+
+	@Test
+	public void testRejectsInvalidInput() {
+		assertInvalid("");
+		assertInvalid("  ");
+		assertInvalid("TW!u");
+		assertInvalid("ab+_");
+		assertInvalid("ab-/");
+		assertInvalid("-----BEGIN PUBLIC KEY-----\nab-_\n-----END PUBLIC KEY-----");
+		assertInvalid("-----BEGIN PUBLIC KEY-----\nTWFu\n");
+		assertInvalid("-----BEGIN PUBLIC KEY-----\n-----END PUBLIC KEY-----");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsValidBase64ThatIsNotAKey() {
+		SignatureVerifier.decodePublicKey("TWFuTWFuTWFu");
+	}
+
+	@Test
+	public void testVerify() throws Exception {
+		SignatureVerifier verifier = new SignatureVerifier(keyPair.getPublic(), "SHA256withRSA");
+		byte[] data = "license data".getBytes("UTF-8");
+		byte[] signature = sign(data);
+
+		assertTrue(verifier.verify(data, signature));
+		assertTrue(verifier.verify(ByteBuffer.wrap(data), signature));
+		assertFalse(verifier.verify("tampered data".getBytes("UTF-8"), signature));
+		assertFalse(verifier.verify(data, new byte[]{1, 2, 3}));
+		assertTrue(verifier.verify(data, signature));
+	}
+
+	@Test
+	public void testPooledVerifyUnderConcurrency() throws Exception {
+		final SignatureVerifier verifier = new SignatureVerifier(keyPair.getPublic(), "SHA256withRSA");
+		final byte[][] data = new byte[8][];
+		final byte[][] signatures = new byte[8][];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = ("license " + i).getBytes("UTF-8");
+			signatures[i] = sign(data[i]);
+		}
+
+		final AtomicInteger failures = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < 300; i++) {
+						int n = (i + offset) % data.length;
+						if (!verifier.verify(data[n], signatures[n])) {
+							failures.incrementAndGet();
+						}
+						if (verifier.verify(data[n], signatures[(n + 1) % data.length])) {
+							failures.incrementAndGet();
+						}
+						if (i % 50 == 0 && verifier.verify(data[n], new byte[]{1})) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, failures.get());
+	}
+
+	@Test
+	public void testProductCachesVerifiersPerAlgorithm() {
+		Product product = new Product(1L, "product", encodedKey(), null, new ProductVersion("1.0.0", "2017-03-05"), null);
+		SignatureVerifier verifier = product.signatureVerifier("SHA256withRSA");
+		assertSame(verifier, product.signatureVerifier("SHA256withRSA"));
+		assertNotSame(verifier, product.signatureVerifier("SHA1withRSA"));
+		assertEquals(keyPair.getPublic(), verifier.publicKey());
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.metrics;
+
+import org.junit.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+import static com.univocity.api.license.metrics.LicenseOperation.*;
+import static org.junit.Assert.*;
+
+public class LicenseStatisticsTest {
+
+	private final LicenseStatistics statistics = new LicenseStatistics();
+
+	private void record(long... elapsedNanos) {
+		for (long nanos : elapsedNanos) {
+			statistics.operationCompleted(null, VALIDATE, VALID, nanos);
+		}
+	}
+
+	private long[] histogram() {
+		return statistics.getHistogram(VALIDATE, VALID);
+	}
+
+	private long percentile(double percentile) {
+		return statistics.getPercentileNanos(VALIDATE, VALID, percentile);
+	}
+
+	@Test
+	public void testEmptyStatistics() {
+		assertEquals(0L, statistics.getCount(VALIDATE, VALID));
+		assertEquals(0L, statistics.getCount(VALIDATE));
+		assertEquals(0L, statistics.getTotalNanos(VALIDATE, VALID));
+		assertArrayEquals(new long[LicenseStatistics.BUCKETS], histogram());
+		assertEquals(0L, percentile(0.0));
+		assertEquals(0L, percentile(50.0));
+		assertEquals(0L, percentile(100.0));
+		assertEquals("", statistics.toString());
+	}
+
+	@Test
+	public void testSingleSample() {
+		record(1000L);
+
+		assertEquals(1L, statistics.getCount(VALIDATE, VALID));
+		assertEquals(1L, statistics.getCount(VALIDATE));
+		assertEquals(0L, statistics.getCount(VALIDATE, EXPIRED));
+		assertEquals(0L, statistics.getCount(REMOTE_SYNC));
+		assertEquals(1000L, statistics.getTotalNanos(VALIDATE, VALID));
+
+		// 512 <= 1000 < 1024
+		long[] expected = new long[LicenseStatistics.BUCKETS];
+		expected[10] = 1L;
+		assertArrayEquals(expected, histogram());
+		assertEquals(1023L, percentile(0.0));
+		assertEquals(1023L, percentile(50.0));
+		assertEquals(1023L, percentile(100.0));
+		assertEquals("VALIDATE VALID: count=1, avg=1000ns, p99<=1023ns", statistics.toString());
+	}
+
+	@Test
+	public void testBucketBoundaries() {
+		record(0L, -5L, 1L, 2L, 3L, 4L, 1023L, 1024L);
+
+		long[] histogram = histogram();
+		assertEquals(2L, histogram[0]);
+		assertEquals(1L, histogram[1]);
+		assertEquals(2L, histogram[2]);
+		assertEquals(1L, histogram[3]);
+		assertEquals(1L, histogram[10]);
+		assertEquals(1L, histogram[11]);
+		assertEquals(8L, statistics.getCount(VALIDATE));
+	}
+
+	@Test
+	public void testOverflowBucket() {
+		record((1L << 62) - 1L, 1L << 62, Long.MAX_VALUE);
+
+		long[] histogram = histogram();
+		assertEquals(1L, histogram[LicenseStatistics.BUCKETS - 2]);
+		assertEquals(2L, histogram[LicenseStatistics.BUCKETS - 1]);
+		assertEquals((1L << 62) - 1L, percentile(0.0));
+		assertEquals(Long.MAX_VALUE, percentile(50.0));
+		assertEquals(Long.MAX_VALUE, percentile(100.0));
+	}
+
+	@Test
+	public void testPercentiles() {
+		// 90 operations in [64, 128), 9 in [1024, 2048) and 1 in [2^20, 2^21)
+		for (int i = 0; i < 90; i++) {
+			record(100L);
+		}
+		for (int i = 0; i < 9; i++) {
+			record(2000L);
+		}
+		record(1500000L);
+
+		assertEquals(127L, percentile(0.0));
+		assertEquals(127L, percentile(50.0));
+		assertEquals(127L, percentile(90.0));
+		assertEquals(2047L, percentile(91.0));
+		assertEquals(2047L, percentile(99.0));
+		assertEquals((1L << 21) - 1L, percentile(99.5));
+		assertEquals((1L << 21) - 1L, percentile(100.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsPercentileAbove100() {
+		percentile(100.1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsNegativePercentile() {
+		percentile(-0.1);
+	}
+
+	@Test
+	public void testReset() {
+		record(10L, 20L);
+		statistics.operationCompleted(null, REMOTE_SYNC, ERROR, 30L);
+		statistics.reset();
+
+		assertEquals(0L, statistics.getCount(VALIDATE));
+		assertEquals(0L, statistics.getCount(REMOTE_SYNC));
+		assertEquals(0L, statistics.getTotalNanos(VALIDATE, VALID));
+		assertArrayEquals(new long[LicenseStatistics.BUCKETS], histogram());
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.pool;
+
+import org.junit.*;
+
+import java.util.concurrent.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+import static org.junit.Assert.*;
+
+public class SeatPoolTest {
+
+	@Test
+	public void testCapacityIsEnforced() {
+		SeatPool pool = new SeatPool("pool", 2);
+		assertEquals(VALID, pool.acquire("a", 1, TimeUnit.MINUTES).result());
+		assertEquals(VALID, pool.acquire("b", 1, TimeUnit.MINUTES).result());
+
+		SeatLease rejected = pool.acquire("c", 1, TimeUnit.MINUTES);
+		assertEquals(NO_MORE_LICENSES, rejected.result());
+		assertNull(rejected.leaseId());
+		assertFalse(rejected.isValid());
+		assertEquals(0, pool.getAvailable());
+	}
+
+	@Test
+	public void testReleaseReturnsSeat() {
+		SeatPool pool = new SeatPool("pool", 1);
+		SeatLease lease = pool.acquire("a", 1, TimeUnit.MINUTES);
+		assertTrue(lease.isValid());
+
+		assertEquals(RELEASED, pool.release(lease.leaseId()));
+		assertEquals(NOT_FOUND, pool.release(lease.leaseId()));
+		assertEquals(1, pool.getAvailable());
+		assertEquals(VALID, pool.acquire("b", 1, TimeUnit.MINUTES).result());
+	}
+
+	@Test
+	public void testRenewExtendsLease() throws Exception {
+		SeatPool pool = new SeatPool("pool", 1);
+		SeatLease lease = pool.acquire("a", 50, TimeUnit.MILLISECONDS);
+		SeatLease renewed = pool.renew(lease.leaseId(), 1, TimeUnit.MINUTES);
+
+		assertEquals(VALID, renewed.result());
+		assertEquals(lease.leaseId(), renewed.leaseId());
+		assertTrue(renewed.expiration() > lease.expiration());
+
+		Thread.sleep(100L);
+		assertEquals(0, pool.reclaimExpired());
+		assertEquals(VALID, pool.renew(lease.leaseId(), 1, TimeUnit.MINUTES).result());
+	}
+
+	@Test
+	public void testExpiredLeasesAreReclaimed() throws Exception {
+		SeatPool pool = new SeatPool("pool", 2);
+		pool.acquire("a", 20, TimeUnit.MILLISECONDS);
+		pool.acquire("b", 1, TimeUnit.MINUTES);
+		Thread.sleep(50L);
+
+		assertEquals(1, pool.reclaimExpired());
+		assertEquals(1, pool.getAvailable());
+		assertEquals(0, pool.reclaimExpired());
+	}
+
+	@Test
+	public void testExpiredLeaseCannotBeRenewed() throws Exception {
+		SeatPool pool = new SeatPool("pool", 1);
+		SeatLease lease = pool.acquire("a", 20, TimeUnit.MILLISECONDS);
+		Thread.sleep(50L);
+
+		SeatLease renewed = pool.renew(lease.leaseId(), 1, TimeUnit.MINUTES);
+		assertEquals(NOT_FOUND, renewed.result());
+		assertEquals(1, pool.getAvailable());
+		assertEquals(NOT_FOUND, pool.release(lease.leaseId()));
+	}
+
+	@Test
+	public void testAcquireReclaimsExpiredSeats() throws Exception {
+		SeatPool pool = new SeatPool("pool", 1);
+		pool.acquire("a", 20, TimeUnit.MILLISECONDS);
+		Thread.sleep(SeatPool.RECLAIM_INTERVAL_MILLIS + 50L);
+
+		assertEquals(VALID, pool.acquire("b", 1, TimeUnit.MINUTES).result());
+		assertEquals(0, pool.getAvailable());
+	}
+
+	@Test
+	public void testHugeTtlDoesNotOverflow() {
+		SeatPool pool = new SeatPool("pool", 2);
+		SeatLease lease = pool.acquire("a", Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		assertEquals(VALID, lease.result());
+		assertEquals(Long.MAX_VALUE, lease.expiration());
+		assertTrue(lease.isValid());
+
+		SeatLease renewed = pool.renew(lease.leaseId(), Long.MAX_VALUE, TimeUnit.DAYS);
+		assertEquals(VALID, renewed.result());
+		assertEquals(Long.MAX_VALUE, renewed.expiration());
+
+		assertEquals(VALID, pool.acquire("b", Long.MAX_VALUE - 1, TimeUnit.NANOSECONDS).result());
+		assertEquals(0, pool.reclaimExpired());
+		assertEquals(0, pool.getAvailable());
+	}
+}
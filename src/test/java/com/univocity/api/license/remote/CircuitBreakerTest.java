@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import com.univocity.api.license.*;
+import org.junit.*;
+
+import static com.univocity.api.license.remote.CircuitBreaker.State.*;
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+	private static final RetryPolicy SHORT_BACKOFF = new RetryPolicy(3, 20L, 40L);
+
+	@Test
+	public void testOpensAfterConsecutiveFailures() {
+		CircuitBreaker breaker = new CircuitBreaker(3, RetryPolicy.DEFAULT);
+		breaker.recordFailure();
+		breaker.recordFailure();
+		assertEquals(CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+
+		breaker.recordResult(LicenseValidationResult.ERROR);
+		assertEquals(OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest());
+	}
+
+	@Test
+	public void testSuccessResetsFailureCount() {
+		CircuitBreaker breaker = new CircuitBreaker(2, RetryPolicy.DEFAULT);
+		breaker.recordFailure();
+		breaker.recordResult(LicenseValidationResult.INVALID);
+		breaker.recordFailure();
+		assertEquals(CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testOpenPeriodIsAtLeastHalfOfBackoff() {
+		CircuitBreaker breaker = new CircuitBreaker(1, new RetryPolicy(1, 10000L, 10000L));
+		breaker.recordFailure();
+		assertTrue(breaker.getRemainingOpenTime() >= 4900L);
+		assertTrue(breaker.getRemainingOpenTime() <= 10000L);
+	}
+
+	@Test
+	public void testHalfOpenAllowsSingleProbe() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, SHORT_BACKOFF);
+		breaker.recordFailure();
+		Thread.sleep(50L);
+
+		assertEquals(HALF_OPEN, breaker.getState());
+		assertTrue(breaker.allowRequest());
+		assertFalse(breaker.allowRequest());
+
+		breaker.recordSuccess();
+		assertEquals(CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void testFailedProbeReopens() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, SHORT_BACKOFF);
+		breaker.recordFailure();
+		Thread.sleep(50L);
+
+		assertTrue(breaker.allowRequest());
+		breaker.recordFailure();
+		assertEquals(OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest());
+	}
+
+	@Test
+	public void testProbeTimesOut() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, SHORT_BACKOFF, 20L);
+		breaker.recordFailure();
+		Thread.sleep(50L);
+
+		assertTrue(breaker.allowRequest());
+		assertFalse(breaker.allowRequest());
+		Thread.sleep(30L);
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void testFailuresWhileOpenDontExtendOpenPeriod() {
+		CircuitBreaker breaker = new CircuitBreaker(1, new RetryPolicy(1, 10000L, 10000L));
+		breaker.recordFailure();
+		long remaining = breaker.getRemainingOpenTime();
+		breaker.recordFailure();
+		breaker.recordFailure();
+		assertTrue(breaker.getRemainingOpenTime() <= remaining);
+	}
+
+	@Test
+	public void testForDomainConfiguration() {
+		CircuitBreaker breaker = CircuitBreaker.forDomain("circuit-breaker-test", 5, SHORT_BACKOFF);
+		assertSame(breaker, CircuitBreaker.forDomain("circuit-breaker-test"));
+		assertSame(breaker, CircuitBreaker.forDomain("circuit-breaker-test", 5, SHORT_BACKOFF));
+		assertEquals(5, breaker.getFailureThreshold());
+		assertEquals(SHORT_BACKOFF, breaker.getBackoffPolicy());
+
+		assertEquals(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.forDomain("circuit-breaker-test-default").getFailureThreshold());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testForDomainRejectsDifferentConfiguration() {
+		CircuitBreaker.forDomain("circuit-breaker-test-conflict", 5, SHORT_BACKOFF);
+		CircuitBreaker.forDomain("circuit-breaker-test-conflict", 2, SHORT_BACKOFF);
+	}
+}
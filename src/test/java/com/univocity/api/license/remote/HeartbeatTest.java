@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import com.univocity.api.license.pool.*;
+import org.junit.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+import static org.junit.Assert.*;
+
+public class HeartbeatTest {
+
+	private static HeartbeatRequest newRequest() {
+		return new HeartbeatRequest()
+				.addSerialKey("KEY-1")
+				.addSerialKey("KEY-2")
+				.addSerialKey("KEY-1")
+				.addLease("pool-a", "lease-1")
+				.addLease("pool-a", "lease-2")
+				.addLease("pool-b", "lease-3")
+				.setLeaseDuration(2, TimeUnit.MINUTES);
+	}
+
+	@Test
+	public void testRequestRoundTrip() {
+		HeartbeatRequest request = newRequest();
+		assertEquals(5, request.size());
+
+		ByteBuffer encoded = request.encode();
+		int position = encoded.position();
+		HeartbeatRequest decoded = HeartbeatRequest.decode(encoded);
+		assertEquals(position, encoded.position());
+
+		assertEquals(new ArrayList<String>(request.getSerialKeys()), new ArrayList<String>(decoded.getSerialKeys()));
+		assertEquals(request.getLeases(), decoded.getLeases());
+		assertEquals(new ArrayList<String>(request.getLeases().keySet()), new ArrayList<String>(decoded.getLeases().keySet()));
+		assertEquals(TimeUnit.MINUTES.toMillis(2), decoded.getLeaseDuration());
+		assertEquals(5, decoded.size());
+	}
+
+	@Test
+	public void testRequestFromDirectBuffer() {
+		ByteBuffer encoded = newRequest().encode();
+		ByteBuffer direct = ByteBuffer.allocateDirect(encoded.remaining());
+		direct.put(encoded);
+		direct.flip();
+
+		assertEquals(5, HeartbeatRequest.decode(direct).size());
+	}
+
+	@Test
+	public void testResponseRoundTrip() {
+		HeartbeatRequest request = newRequest();
+		long serverTime = 1000000L;
+		HeartbeatResponse response = new HeartbeatResponse(request)
+				.setResult("KEY-1", VALID)
+				.setResult("KEY-2", DISABLED)
+				.setLease("pool-a", "lease-1", VALID, serverTime + 60000L)
+				.setLease("pool-a", "lease-2", NOT_FOUND, 0L);
+
+		long before = System.currentTimeMillis();
+		HeartbeatResponse decoded = HeartbeatResponse.decode(response.encode(serverTime), request);
+		long after = System.currentTimeMillis();
+
+		assertEquals(VALID, decoded.getResult("KEY-1"));
+		assertEquals(DISABLED, decoded.getResult("KEY-2"));
+		assertEquals(Arrays.asList("KEY-1", "KEY-2"), new ArrayList<String>(decoded.getResults().keySet()));
+
+		SeatLease renewed = decoded.getLease("pool-a", "lease-1");
+		assertEquals(VALID, renewed.result());
+		assertTrue(renewed.expiration() >= before + 60000L);
+		assertTrue(renewed.expiration() <= after + 60000L);
+
+		assertEquals(NOT_FOUND, decoded.getLease("pool-a", "lease-2").result());
+		assertEquals(ERROR, decoded.getLease("pool-b", "lease-3").result());
+	}
+
+	@Test
+	public void testUnboundedLeaseDoesNotOverflow() {
+		HeartbeatRequest request = newRequest();
+		HeartbeatResponse response = new HeartbeatResponse(request).setLease("pool-a", "lease-1", VALID, Long.MAX_VALUE);
+
+		// a server clock behind the local clock makes the remaining time exceed what can be added to it
+		SeatLease lease = HeartbeatResponse.decode(response.encode(0L), request).getLease("pool-a", "lease-1");
+		assertEquals(VALID, lease.result());
+		assertEquals(Long.MAX_VALUE, lease.expiration());
+		assertTrue(lease.isValid());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testResultForUnknownSerialKey() {
+		new HeartbeatResponse(newRequest()).setResult("KEY-3", VALID);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedResponse() {
+		HeartbeatRequest request = newRequest();
+		ByteBuffer encoded = new HeartbeatResponse(request).encode(0L);
+		encoded.limit(encoded.limit() - 1);
+		HeartbeatResponse.decode(encoded, request);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRequestIsNotResponse() {
+		HeartbeatRequest request = newRequest();
+		HeartbeatResponse.decode(request.encode(), request);
+	}
+}
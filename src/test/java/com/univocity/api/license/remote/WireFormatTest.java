@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.remote;
+
+import org.junit.*;
+
+import java.io.*;
+import java.nio.*;
+
+import static com.univocity.api.license.remote.WireFormat.*;
+import static org.junit.Assert.*;
+
+public class WireFormatTest {
+
+	private static ByteBuffer buffer(ByteArrayOutputStream out) {
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+	@Test
+	public void testVarLongRoundTrip() {
+		long[] values = {0L, 1L, 127L, 128L, 16383L, 16384L, Integer.MAX_VALUE, Long.MAX_VALUE};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (long value : values) {
+			writeVarLong(out, value);
+		}
+		ByteBuffer in = buffer(out);
+		for (long value : values) {
+			assertEquals(value, readVarLong(in));
+		}
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	public void testVarLongSize() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeVarLong(out, 127L);
+		assertEquals(1, out.size());
+		writeVarLong(out, 128L);
+		assertEquals(3, out.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeVarLongIsRejected() {
+		writeVarLong(new ByteArrayOutputStream(), -1L);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedVarLong() {
+		readVarLong(ByteBuffer.wrap(new byte[]{(byte) 0x80}));
+	}
+
+	@Test
+	public void testStringRoundTrip() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeString(out, "");
+		writeString(out, "serial-key");
+		writeString(out, "ção 中文");
+		ByteBuffer in = buffer(out);
+		assertEquals("", readString(in));
+		assertEquals("serial-key", readString(in));
+		assertEquals("ção 中文", readString(in));
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedString() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeString(out, "serial-key");
+		ByteBuffer in = buffer(out);
+		in.limit(in.limit() - 1);
+		readString(in);
+	}
+
+	@Test
+	public void testReadableCopiesDirectBuffers() {
+		ByteBuffer direct = ByteBuffer.allocateDirect(4);
+		direct.put(new byte[]{1, 2, 3, 4});
+		direct.flip();
+		direct.get();
+
+		ByteBuffer readable = readable(direct);
+		assertTrue(readable.hasArray());
+		assertEquals(3, readable.remaining());
+		assertEquals(2, readable.get());
+		assertEquals(1, direct.position());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnexpectedHeader() {
+		expectHeader(ByteBuffer.wrap(new byte[]{'x', 1}), 'H', 1, "heartbeat request");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedVersion() {
+		expectHeader(ByteBuffer.wrap(new byte[]{'H', 2}), 'H', 1, "heartbeat request");
+	}
+}
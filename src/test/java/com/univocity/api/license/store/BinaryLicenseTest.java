@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.store;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+import org.junit.*;
+
+import java.nio.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BinaryLicenseTest {
+
+	private static final class TestLicense implements License {
+		String storeName = "univocity";
+		String email = "dev@example.com";
+		String firstName = "Zo\u00eb";
+		String lastName = "Ng";
+		String serialKey = "ABCD-1234";
+		String productName = "univocity-parsers";
+		String productVersion = "2.9.1";
+		String productVariant = "Pro";
+		String licensePoolName = "Team";
+		int releaseDate = EpochDays.of(2017, 3, 5);
+		int expirationDate = EpochDays.of(2030, 6, 30);
+		int supportEndDate = EpochDays.of(2031, 12, 31);
+
+		public String getStoreName() {
+			return storeName;
+		}
+
+		public String getEmail() {
+			return email;
+		}
+
+		public String getFirstName() {
+			return firstName;
+		}
+
+		public String getLastName() {
+			return lastName;
+		}
+
+		public String getSerialKey() {
+			return serialKey;
+		}
+
+		public boolean isTrial() {
+			return serialKey == null;
+		}
+
+		public String getProductName() {
+			return productName;
+		}
+
+		public String getProductVersion() {
+			return productVersion;
+		}
+
+		public String getProductVariant() {
+			return productVariant;
+		}
+
+		public Calendar getVersionReleaseDate() {
+			return EpochDays.toCalendar(releaseDate);
+		}
+
+		public Calendar getLicenseExpirationDate() {
+			return EpochDays.toCalendar(expirationDate);
+		}
+
+		public Calendar getSupportEndDate() {
+			return EpochDays.toCalendar(supportEndDate);
+		}
+
+		public int getVersionReleaseEpochDay() {
+			return releaseDate;
+		}
+
+		public int getLicenseExpirationEpochDay() {
+			return expirationDate;
+		}
+
+		public long getLicenseExpirationEpochMillis() {
+			throw new UnsupportedOperationException();
+		}
+
+		public int getSupportEndEpochDay() {
+			return supportEndDate;
+		}
+
+		public String getVersionReleaseDate(String datePattern) {
+			throw new UnsupportedOperationException();
+		}
+
+		public String getLicenseExpirationDate(String datePattern) {
+			throw new UnsupportedOperationException();
+		}
+
+		public String getSupportEndDate(String datePattern) {
+			throw new UnsupportedOperationException();
+		}
+
+		public String getLicensePoolName() {
+			return licensePoolName;
+		}
+	}
+
+	private static void assertSameDetails(License expected, License actual) {
+		assertEquals(expected.getStoreName(), actual.getStoreName());
+		assertEquals(expected.getEmail(), actual.getEmail());
+		assertEquals(expected.getFirstName(), actual.getFirstName());
+		assertEquals(expected.getLastName(), actual.getLastName());
+		assertEquals(expected.getSerialKey(), actual.getSerialKey());
+		assertEquals(expected.isTrial(), actual.isTrial());
+		assertEquals(expected.getProductName(), actual.getProductName());
+		assertEquals(expected.getProductVersion(), actual.getProductVersion());
+		assertEquals(expected.getProductVariant(), actual.getProductVariant());
+		assertEquals(expected.getLicensePoolName(), actual.getLicensePoolName());
+		assertEquals(expected.getVersionReleaseEpochDay(), actual.getVersionReleaseEpochDay());
+		assertEquals(expected.getLicenseExpirationEpochDay(), actual.getLicenseExpirationEpochDay());
+		assertEquals(expected.getSupportEndEpochDay(), actual.getSupportEndEpochDay());
+		assertEquals(expected.getVersionReleaseDate(), actual.getVersionReleaseDate());
+		assertEquals(expected.getLicenseExpirationDate(), actual.getLicenseExpirationDate());
+		assertEquals(expected.getSupportEndDate(), actual.getSupportEndDate());
+	}
+
+	@Test
+	public void testRoundTrip() {
+		TestLicense license = new TestLicense();
+		BinaryLicense binary = new BinaryLicense(BinaryLicense.encode(license));
+		assertSameDetails(license, binary);
+		assertFalse(binary.isTrial());
+
+		BinaryLicense reencoded = new BinaryLicense(BinaryLicense.encode(binary));
+		assertSameDetails(license, reencoded);
+	}
+
+	@Test
+	public void testRoundTripOfTrialWithoutDates() {
+		TestLicense license = new TestLicense();
+		license.serialKey = null;
+		license.productVariant = null;
+		license.licensePoolName = "";
+		license.expirationDate = EpochDays.NONE;
+		license.supportEndDate = EpochDays.NONE;
+
+		BinaryLicense binary = new BinaryLicense(BinaryLicense.encode(license));
+		assertSameDetails(license, binary);
+		assertTrue(binary.isTrial());
+		assertNull(binary.getSerialKey());
+		assertNull(binary.getProductVariant());
+		assertEquals("", binary.getLicensePoolName());
+		assertNull(binary.getLicenseExpirationDate());
+		assertNull(binary.getLicenseExpirationDate("yyyy-MM-dd"));
+		assertEquals(Long.MAX_VALUE, binary.getLicenseExpirationEpochMillis());
+	}
+
+	@Test
+	public void testReadsFromBufferPosition() {
+		ByteBuffer encoded = BinaryLicense.encode(new TestLicense());
+		ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.remaining() + 7);
+		buffer.position(7);
+		buffer.put(encoded);
+		buffer.position(7);
+
+		BinaryLicense binary = new BinaryLicense(buffer);
+		assertSameDetails(new TestLicense(), binary);
+		assertEquals(7, buffer.position());
+	}
+
+	@Test
+	public void testFormattedDates() {
+		BinaryLicense binary = new BinaryLicense(BinaryLicense.encode(new TestLicense()));
+		assertEquals("2017-03-05", binary.getVersionReleaseDate("yyyy-MM-dd"));
+		assertEquals("30/06/2030", binary.getLicenseExpirationDate("dd/MM/yyyy"));
+		assertEquals("2030-06-30", binary.getLicenseExpirationDate("yyyy-MM-dd"));
+		assertEquals("2031-12-31", binary.getSupportEndDate("yyyy-MM-dd"));
+	}
+
+	@Test
+	public void testExpiresAtEndOfExpirationDay() {
+		BinaryLicense binary = new BinaryLicense(BinaryLicense.encode(new TestLicense()));
+		long endOfDay = binary.getLicenseExpirationEpochMillis();
+
+		Calendar lastMillisecond = new GregorianCalendar(2030, Calendar.JUNE, 30, 23, 59, 59);
+		lastMillisecond.set(Calendar.MILLISECOND, 999);
+		assertEquals(lastMillisecond.getTimeInMillis(), endOfDay);
+		assertEquals(new GregorianCalendar(2030, Calendar.JULY, 1).getTimeInMillis(), endOfDay + 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsBufferWithoutLicense() {
+		new BinaryLicense(ByteBuffer.wrap(new byte[64]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsTruncatedLicense() {
+		ByteBuffer encoded = BinaryLicense.encode(new TestLicense());
+		encoded.limit(encoded.limit() - 1);
+		new BinaryLicense(encoded);
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.store;
+
+import org.junit.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class MappedLicenseFileTest {
+
+	private final List<MappedLicenseFile> opened = new ArrayList<MappedLicenseFile>();
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("license", ".map");
+		if (!file.delete()) {
+			throw new IOException("Unable to delete " + file);
+		}
+	}
+
+	@After
+	public void deleteFile() throws IOException {
+		for (MappedLicenseFile store : opened) {
+			store.close();
+		}
+		file.delete();
+	}
+
+	private MappedLicenseFile open() throws IOException {
+		MappedLicenseFile store = new MappedLicenseFile(file.getPath(), 1024);
+		opened.add(store);
+		return store;
+	}
+
+	/**
+	 * Content whose bytes are all equal to the given value and whose length depends on it, so that a read mixing
+	 * two writes is detected.
+	 */
+	private static ByteBuffer content(int value) {
+		byte[] bytes = new byte[16 + (value & 0xFF) * 3];
+		Arrays.fill(bytes, (byte) value);
+		return ByteBuffer.wrap(bytes);
+	}
+
+	private static void assertConsistent(ByteBuffer content) {
+		assertNotNull(content);
+		int length = content.remaining();
+		assertTrue(length >= 16);
+		byte value = content.get(content.position());
+		assertEquals(16 + (value & 0xFF) * 3, length);
+		for (int i = content.position(); i < content.limit(); i++) {
+			assertEquals(value, content.get(i));
+		}
+	}
+
+	private void writeSequence(long sequence) throws IOException {
+		RandomAccessFile raw = new RandomAccessFile(file, "rw");
+		try {
+			raw.seek(8);
+			raw.writeLong(sequence);
+		} finally {
+			raw.close();
+		}
+	}
+
+	@Test
+	public void testWriteReadAndDelete() throws IOException {
+		MappedLicenseFile store = open();
+		assertNull(store.read());
+		assertEquals(1024, store.capacity());
+
+		long version = store.version();
+		store.write(content(7));
+		assertTrue(store.version() > version);
+		assertEquals(content(7), store.read());
+
+		store.delete();
+		assertNull(store.read());
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsContentLargerThanCapacity() throws IOException {
+		open().write(ByteBuffer.allocate(1025));
+	}
+
+	@Test
+	public void testKeepsContentWhenReopened() throws IOException {
+		MappedLicenseFile store = open();
+		store.write(content(3));
+		store.close();
+
+		MappedLicenseFile reopened = new MappedLicenseFile(file.getPath(), 64);
+		opened.add(reopened);
+		assertEquals(1024, reopened.capacity());
+		assertEquals(content(3), reopened.read());
+	}
+
+	@Test
+	public void testConcurrentReadersNeverSeeTornWrites() throws Exception {
+		final MappedLicenseFile writer = open();
+		final MappedLicenseFile reader = open();
+		writer.write(content(0));
+
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicInteger reads = new AtomicInteger();
+		Thread[] readers = new Thread[3];
+		for (int i = 0; i < readers.length; i++) {
+			final MappedLicenseFile store = i == 0 ? writer : reader;
+			readers[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (!done.get()) {
+							assertConsistent(store.read());
+							reads.incrementAndGet();
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			readers[i].start();
+		}
+
+		try {
+			for (int i = 1; i <= 2000 && failure.get() == null; i++) {
+				writer.write(content(i));
+			}
+		} finally {
+			done.set(true);
+			for (Thread thread : readers) {
+				thread.join();
+			}
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		assertTrue(reads.get() > 0);
+		assertEquals(content(2000), reader.read());
+	}
+
+	@Test
+	public void testRecoversAfterWriterDiedMidWrite() throws IOException {
+		MappedLicenseFile store = open();
+		store.write(content(5));
+		long version = store.version();
+
+		// a writer that dies mid-write leaves an odd sequence number
+		writeSequence(version + 1);
+
+		long start = System.nanoTime();
+		assertNull(store.read());
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500));
+		assertEquals(0L, store.version() & 1L);
+		assertTrue(store.version() > version);
+
+		store.write(content(6));
+		assertEquals(content(6), store.read());
+	}
+
+	@Test
+	public void testWriteAfterWriterDiedMidWrite() throws IOException {
+		MappedLicenseFile store = open();
+		store.write(content(5));
+		writeSequence(store.version() + 1);
+
+		store.write(content(9));
+		assertEquals(0L, store.version() & 1L);
+		assertEquals(content(9), store.read());
+	}
+
+	@Test
+	public void testInstancesOnSamePath() throws Exception {
+		final MappedLicenseFile first = open();
+		final MappedLicenseFile second = new MappedLicenseFile(new File(file.getParentFile(), "." + File.separator + file.getName()).getPath(), 1024);
+		opened.add(second);
+
+		first.write(content(1));
+		assertEquals(content(1), second.read());
+		second.write(content(2));
+		assertEquals(content(2), first.read());
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] writers = new Thread[4];
+		for (int i = 0; i < writers.length; i++) {
+			final MappedLicenseFile store = i % 2 == 0 ? first : second;
+			final int offset = i * 50;
+			writers[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 500; j++) {
+							store.write(content(offset + j % 50));
+							assertConsistent(store.read());
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			writers[i].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		assertConsistent(first.read());
+		assertEquals(first.read(), second.read());
+		assertEquals(0L, first.version() & 1L);
+	}
+
+	@Test
+	public void testPathLockIsDiscardedWhenAllInstancesAreClosed() throws IOException {
+		int before = MappedLicenseFile.openPathCount();
+		MappedLicenseFile first = new MappedLicenseFile(file.getPath(), 1024);
+		MappedLicenseFile second = new MappedLicenseFile(file.getPath(), 1024);
+		assertEquals(before + 1, MappedLicenseFile.openPathCount());
+
+		first.close();
+		first.close();
+		assertEquals(before + 1, MappedLicenseFile.openPathCount());
+
+		second.close();
+		assertEquals(before, MappedLicenseFile.openPathCount());
+
+		MappedLicenseFile third = open();
+		assertEquals(before + 1, MappedLicenseFile.openPathCount());
+		third.write(content(4));
+		assertEquals(content(4), third.read());
+	}
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.server;
+
+import com.sun.net.httpserver.*;
+import com.univocity.api.common.*;
+import com.univocity.api.license.*;
+import com.univocity.api.license.details.*;
+import com.univocity.api.license.pool.*;
+import com.univocity.api.license.remote.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+
+/**
+ * A lightweight, embeddable license server for offline integration and load testing. Point a {@link Store} to
+ * {@link #domain()} to have its products talk to this server instead of the real license server.
+ *
+ * The server accepts POST requests with {@code application/x-www-form-urlencoded} parameters on the following
+ * endpoints, and responds with the numeric {@link LicenseValidationResult#code} of the outcome in plain text:
+ * <ul>
+ * <li>{@code /licenses/assign}: parameters {@code email} and {@code serialKey}</li>
+ * <li>{@code /licenses/trial}: parameter {@code email}</li>
+ * <li>{@code /licenses/release}: parameter {@code serialKey}</li>
+ * <li>{@code /licenses/validate}: parameter {@code serialKey}</li>
+ * </ul>
+ *
+ * Seats of floating license pools registered with {@link #addPool(String, int)} are leased through the following
+ * endpoints, which respond with three lines: the result code, the lease identifier and the lease expiration time in
+ * milliseconds since the epoch (the last two are empty and {@code 0} if no seat is held):
+ * <ul>
+ * <li>{@code /licenses/acquire_seat}: parameters {@code pool}, {@code node} and {@code ttl} (in milliseconds)</li>
+ * <li>{@code /licenses/renew_seat}: parameters {@code pool}, {@code lease} and {@code ttl} (in milliseconds)</li>
+ * <li>{@code /licenses/release_seat}: parameters {@code pool} and {@code lease}</li>
+ * </ul>
+ *
+ * Batches of serial keys and seat leases are validated and renewed through {@code /licenses/heartbeat}, which accepts
+ * an {@code application/octet-stream} body with an encoded {@link HeartbeatRequest} and responds with the encoded
+ * {@link HeartbeatResponse}.
+ *
+ * Licenses known by the server are registered with {@link #addLicense(String, String)}. Any
+ * {@link LicenseValidationResult} can be forced for a given serial key with
+ * {@link #setResult(String, LicenseValidationResult)}, and latency and failures can be injected with
+ * {@link #setLatency(long, long, TimeUnit)} and {@link #setFailureRate(double)}.
+ *
+ * <strong>NOTE:</strong> this server speaks plain HTTP and doesn't sign licenses. It simulates the outcomes of
+ * the license server, not its wire protocol or its cryptography: the endpoints above are defined by this class, so
+ * only clients written against them (e.g. test doubles of {@link LicenseManager}) can talk to it. Owners of a license
+ * manager implementation can adapt the server to their own protocol by overriding {@link #process(Endpoint, Map)},
+ * {@link #processSeat(Endpoint, Map)} and {@link #processHeartbeat(HeartbeatRequest)}.
+ *
+ * This class is distributed in the separate {@code univocity-license-api-stub-server} artifact, which is meant to be
+ * used as a test dependency, so that production code never depends on {@code com.sun.net.httpserver}.
+ */
+public class StubLicenseServer {
+
+	/**
+	 * Endpoint names handled by the server, under {@code /licenses/}.
+	 */
+	public enum Endpoint {
+		ASSIGN, TRIAL, RELEASE, VALIDATE, ACQUIRE_SEAT, RENEW_SEAT, RELEASE_SEAT, HEARTBEAT;
+
+		final String path = "/licenses/" + name().toLowerCase();
+
+		final boolean seatEndpoint() {
+			return this == ACQUIRE_SEAT || this == RENEW_SEAT || this == RELEASE_SEAT;
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private final ConcurrentMap<String, String> emailsPerSerialKey = new ConcurrentHashMap<String, String>();
+	private final ConcurrentMap<String, LicenseValidationResult> statusPerSerialKey = new ConcurrentHashMap<String, LicenseValidationResult>();
+	private final ConcurrentMap<String, LicenseValidationResult> forcedResults = new ConcurrentHashMap<String, LicenseValidationResult>();
+	private final ConcurrentMap<String, SeatPool> pools = new ConcurrentHashMap<String, SeatPool>();
+	private final Set<String> trialEmails = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final AtomicLongArray requestCounts = new AtomicLongArray(Endpoint.values().length);
+
+	private static final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random();
+		}
+	};
+
+	private volatile long minLatencyNanos;
+	private volatile long maxLatencyNanos;
+	private volatile double failureRate;
+	private volatile boolean trialsEnabled = true;
+
+	/**
+	 * Creates a stub license server listening on a given port of the loopback interface, using a thread pool with
+	 * one thread per available processor.
+	 *
+	 * @param port the port to listen to, or {@code 0} to use any free port.
+	 *
+	 * @throws IOException if the server can't be bound to the given port.
+	 */
+	public StubLicenseServer(int port) throws IOException {
+		this(port, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a stub license server listening on a given port of the loopback interface.
+	 *
+	 * @param port    the port to listen to, or {@code 0} to use any free port.
+	 * @param threads the number of threads used to process requests. Use a higher number when injecting latency
+	 *                under load, as each request occupies a thread for the duration of its latency.
+	 *
+	 * @throws IOException if the server can't be bound to the given port.
+	 */
+	public StubLicenseServer(int port, int threads) throws IOException {
+		if (port < 0 || port > 65535) {
+			throw new IllegalArgumentException("Invalid port: " + port);
+		}
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Number of threads must be positive. Got " + threads);
+		}
+
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("localhost"), port), 0);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "stub-license-server-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		server.setExecutor(executor);
+
+		for (final Endpoint endpoint : Endpoint.values()) {
+			server.createContext(endpoint.path, new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					StubLicenseServer.this.handle(endpoint, exchange);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops the server, waiting at most the given number of seconds for requests in progress to complete.
+	 *
+	 * @param delaySeconds the maximum time to wait for requests in progress, in seconds.
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the port this server is listening to.
+	 *
+	 * @return the server port.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the license server domain to be used when creating a {@link Store} that talks to this server.
+	 *
+	 * @return {@code "localhost:[port]"}
+	 */
+	public String domain() {
+		return "localhost:" + getPort();
+	}
+
+	/**
+	 * Registers a license that can be assigned to the given e-mail address and validated.
+	 *
+	 * @param email     the e-mail address of the license owner
+	 * @param serialKey the license serial key
+	 */
+	public void addLicense(String email, String serialKey) {
+		Args.notBlank(email, "E-mail");
+		Args.notBlank(serialKey, "Serial key");
+		emailsPerSerialKey.put(serialKey, email);
+		statusPerSerialKey.remove(serialKey);
+	}
+
+	/**
+	 * Registers a floating license pool whose seats can be leased through the seat endpoints. Replaces any pool
+	 * previously registered with the same name, discarding its leases.
+	 *
+	 * @param poolName the name of the pool (see {@link License#getLicensePoolName()})
+	 * @param seats    the number of seats that can be leased at the same time.
+	 *
+	 * @return the pool, which can be used to inspect the seats in use.
+	 */
+	public SeatPool addPool(String poolName, int seats) {
+		SeatPool pool = new SeatPool(poolName, seats);
+		pools.put(poolName, pool);
+		return pool;
+	}
+
+	/**
+	 * Forces the result returned by every endpoint for requests involving a given serial key, trial requests
+	 * from a given e-mail address, or seat requests to a given license pool.
+	 *
+	 * @param serialKeyOrEmail the serial key, e-mail address for trial requests, or pool name for seat requests.
+	 * @param result           the result to return, or {@code null} to restore the normal behavior.
+	 */
+	public void setResult(String serialKeyOrEmail, LicenseValidationResult result) {
+		Args.notBlank(serialKeyOrEmail, "Serial key or e-mail");
+		if (result == null) {
+			forcedResults.remove(serialKeyOrEmail);
+		} else {
+			forcedResults.put(serialKeyOrEmail, result);
+		}
+	}
+
+	/**
+	 * Enables or disables trial licenses. When disabled, trial requests produce {@link LicenseValidationResult#TRIALS_DISABLED}.
+	 *
+	 * @param trialsEnabled flag indicating whether trial licenses can be assigned.
+	 */
+	public void setTrialsEnabled(boolean trialsEnabled) {
+		this.trialsEnabled = trialsEnabled;
+	}
+
+	/**
+	 * Adds latency to every request. Each request is delayed by a random duration between the given minimum and
+	 * maximum.
+	 *
+	 * @param min  the minimum latency
+	 * @param max  the maximum latency
+	 * @param unit the time unit of the given latencies
+	 */
+	public void setLatency(long min, long max, TimeUnit unit) {
+		if (min < 0 || max < min) {
+			throw new IllegalArgumentException("Invalid latency range: " + min + " to " + max);
+		}
+		this.minLatencyNanos = unit.toNanos(min);
+		this.maxLatencyNanos = unit.toNanos(max);
+	}
+
+	/**
+	 * Defines the fraction of requests that fail with HTTP status {@code 503}, simulating an unavailable server.
+	 *
+	 * @param failureRate a value between {@code 0.0} (no failures) and {@code 1.0} (every request fails).
+	 */
+	public void setFailureRate(double failureRate) {
+		if (failureRate < 0.0 || failureRate > 1.0) {
+			throw new IllegalArgumentException("Failure rate must be between 0.0 and 1.0. Got " + failureRate);
+		}
+		this.failureRate = failureRate;
+	}
+
+	/**
+	 * Returns the number of requests received by a given endpoint, including failed ones.
+	 *
+	 * @param endpoint the endpoint
+	 *
+	 * @return the number of requests received since the server was created.
+	 */
+	public long getRequestCount(Endpoint endpoint) {
+		return requestCounts.get(endpoint.ordinal());
+	}
+
+	private void handle(Endpoint endpoint, HttpExchange exchange) throws IOException {
+		try {
+			requestCounts.incrementAndGet(endpoint.ordinal());
+			byte[] body = readBody(exchange);
+			Map<String, String> parameters = endpoint == Endpoint.HEARTBEAT ? Collections.<String, String>emptyMap() : readParameters(exchange, body);
+
+			simulateLatency();
+
+			if (failureRate > 0.0 && random.get().nextDouble() < failureRate) {
+				exchange.sendResponseHeaders(503, -1);
+				return;
+			}
+			if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			if (endpoint == Endpoint.HEARTBEAT) {
+				HeartbeatRequest request;
+				try {
+					request = HeartbeatRequest.decode(ByteBuffer.wrap(body));
+				} catch (IllegalArgumentException e) {
+					exchange.sendResponseHeaders(400, -1);
+					return;
+				}
+				ByteBuffer encoded = processHeartbeat(request).encode(System.currentTimeMillis());
+				exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+				exchange.sendResponseHeaders(200, encoded.remaining());
+				exchange.getResponseBody().write(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+				return;
+			}
+
+			String content;
+			if (endpoint.seatEndpoint()) {
+				SeatLease lease = processSeat(endpoint, parameters);
+				content = lease.result().code + "\n" + (lease.leaseId() == null ? "" : lease.leaseId()) + "\n" + lease.expiration();
+			} else {
+				content = String.valueOf(process(endpoint, parameters).code);
+			}
+
+			byte[] response = content.getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+			exchange.sendResponseHeaders(200, response.length);
+			exchange.getResponseBody().write(response);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void simulateLatency() {
+		long min = minLatencyNanos;
+		long max = maxLatencyNanos;
+		if (max <= 0L) {
+			return;
+		}
+		long latency = min + (long) (random.get().nextDouble() * (max - min));
+		try {
+			TimeUnit.NANOSECONDS.sleep(latency);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Processes a request and produces its result. Subclasses can override this method to simulate additional
+	 * server behavior.
+	 *
+	 * @param endpoint   the endpoint that received the request
+	 * @param parameters the request parameters
+	 *
+	 * @return the result to send back to the client.
+	 */
+	protected LicenseValidationResult process(Endpoint endpoint, Map<String, String> parameters) {
+		String serialKey = parameters.get("serialKey");
+		String email = parameters.get("email");
+
+		String key = endpoint == Endpoint.TRIAL ? email : serialKey;
+		if (key == null || key.trim().isEmpty()) {
+			return INCOMPLETE;
+		}
+		LicenseValidationResult forced = forcedResults.get(key);
+		if (forced != null) {
+			return forced;
+		}
+
+		switch (endpoint) {
+			case TRIAL:
+				if (!trialsEnabled) {
+					return TRIALS_DISABLED;
+				}
+				return trialEmails.add(email) ? VALID : RETRIAL_ATTEMPTED;
+			case ASSIGN:
+				String owner = emailsPerSerialKey.get(serialKey);
+				if (owner == null) {
+					return INVALID;
+				}
+				if (email == null || !owner.equalsIgnoreCase(email)) {
+					return INVALID;
+				}
+				statusPerSerialKey.put(serialKey, VALID);
+				return VALID;
+			case RELEASE:
+				if (!emailsPerSerialKey.containsKey(serialKey)) {
+					return NOT_FOUND;
+				}
+				statusPerSerialKey.put(serialKey, RELEASED);
+				return RELEASED;
+			case VALIDATE:
+				if (!emailsPerSerialKey.containsKey(serialKey)) {
+					return NOT_FOUND;
+				}
+				LicenseValidationResult status = statusPerSerialKey.get(serialKey);
+				return status == null ? NOT_FOUND : status;
+			default:
+				return ERROR;
+		}
+	}
+
+	/**
+	 * Processes a request to one of the seat endpoints. Subclasses can override this method to simulate additional
+	 * server behavior.
+	 *
+	 * @param endpoint   the endpoint that received the request
+	 * @param parameters the request parameters
+	 *
+	 * @return the lease to send back to the client.
+	 */
+	protected SeatLease processSeat(Endpoint endpoint, Map<String, String> parameters) {
+		String poolName = parameters.get("pool");
+		String node = parameters.get("node");
+		String leaseId = parameters.get("lease");
+
+		if (poolName == null || poolName.trim().isEmpty()) {
+			return SeatLease.rejected("?", node, INCOMPLETE);
+		}
+		SeatPool pool = pools.get(poolName);
+		if (pool == null) {
+			return SeatLease.rejected(poolName, node, NOT_FOUND);
+		}
+		LicenseValidationResult forced = forcedResults.get(poolName);
+		if (forced != null) {
+			return SeatLease.rejected(poolName, node, forced);
+		}
+
+		long ttl;
+		try {
+			ttl = endpoint == Endpoint.RELEASE_SEAT ? 1L : Long.parseLong(parameters.get("ttl"));
+		} catch (NumberFormatException e) {
+			ttl = 0L;
+		}
+		String key = endpoint == Endpoint.ACQUIRE_SEAT ? node : leaseId;
+		if (key == null || key.trim().isEmpty() || ttl <= 0L) {
+			return SeatLease.rejected(poolName, node, INCOMPLETE);
+		}
+
+		switch (endpoint) {
+			case ACQUIRE_SEAT:
+				return pool.acquire(node, ttl, TimeUnit.MILLISECONDS);
+			case RENEW_SEAT:
+				return pool.renew(leaseId, ttl, TimeUnit.MILLISECONDS);
+			case RELEASE_SEAT:
+				return SeatLease.rejected(poolName, node, pool.release(leaseId));
+			default:
+				return SeatLease.rejected(poolName, node, ERROR);
+		}
+	}
+
+	/**
+	 * Processes a heartbeat, validating each serial key as the {@code /licenses/validate} endpoint does and renewing
+	 * each lease as the {@code /licenses/renew_seat} endpoint does. Subclasses can override this method to simulate
+	 * additional server behavior.
+	 *
+	 * @param request the decoded heartbeat request
+	 *
+	 * @return the response to send back to the client.
+	 */
+	protected HeartbeatResponse processHeartbeat(HeartbeatRequest request) {
+		HeartbeatResponse response = new HeartbeatResponse(request);
+		Map<String, String> parameters = new HashMap<String, String>();
+
+		for (String serialKey : request.getSerialKeys()) {
+			parameters.put("serialKey", serialKey);
+			response.setResult(serialKey, process(Endpoint.VALIDATE, parameters));
+		}
+
+		parameters.clear();
+		parameters.put("ttl", String.valueOf(request.getLeaseDuration()));
+		for (Map.Entry<String, Set<String>> e : request.getLeases().entrySet()) {
+			parameters.put("pool", e.getKey());
+			for (String leaseId : e.getValue()) {
+				parameters.put("lease", leaseId);
+				SeatLease lease = processSeat(Endpoint.RENEW_SEAT, parameters);
+				response.setLease(e.getKey(), leaseId, lease.result(), lease.expiration());
+			}
+		}
+		return response;
+	}
+
+	private static byte[] readBody(HttpExchange exchange) throws IOException {
+		InputStream in = exchange.getRequestBody();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	private static Map<String, String> readParameters(HttpExchange exchange, byte[] body) throws IOException {
+		StringBuilder content = new StringBuilder();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			content.append(query);
+		}
+		if (body.length > 0) {
+			if (content.length() > 0) {
+				content.append('&');
+			}
+			content.append(new String(body, "UTF-8"));
+		}
+
+		Map<String, String> parameters = new HashMap<String, String>();
+		for (String pair : content.toString().split("&")) {
+			if (pair.isEmpty()) {
+				continue;
+			}
+			int equals = pair.indexOf('=');
+			if (equals < 0) {
+				parameters.put(URLDecoder.decode(pair, "UTF-8"), "");
+			} else {
+				parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+			}
+		}
+		return parameters;
+	}
+}
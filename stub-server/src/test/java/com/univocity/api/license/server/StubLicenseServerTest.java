@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ *
+ */
+
+package com.univocity.api.license.server;
+
+import com.univocity.api.license.*;
+import com.univocity.api.license.pool.*;
+import com.univocity.api.license.remote.*;
+import com.univocity.api.license.server.StubLicenseServer.*;
+import org.junit.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.util.concurrent.*;
+
+import static com.univocity.api.license.LicenseValidationResult.*;
+import static org.junit.Assert.*;
+
+public class StubLicenseServerTest {
+
+	private StubLicenseServer server;
+
+	@Before
+	public void startServer() throws IOException {
+		server = new StubLicenseServer(0, 2);
+		server.start();
+		server.addLicense("owner@example.com", "SERIAL-1");
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	private HttpURLConnection connect(String path, String method) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://" + server.domain() + path).openConnection();
+		connection.setRequestMethod(method);
+		connection.setConnectTimeout(5000);
+		connection.setReadTimeout(5000);
+		return connection;
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private HttpURLConnection post(Endpoint endpoint, String contentType, byte[] body) throws IOException {
+		HttpURLConnection connection = connect(endpoint.path, "POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", contentType);
+		OutputStream out = connection.getOutputStream();
+		try {
+			out.write(body);
+		} finally {
+			out.close();
+		}
+		return connection;
+	}
+
+	private String post(Endpoint endpoint, String parameters) throws IOException {
+		HttpURLConnection connection = post(endpoint, "application/x-www-form-urlencoded", parameters.getBytes("UTF-8"));
+		assertEquals(200, connection.getResponseCode());
+		return new String(readFully(connection.getInputStream()), "UTF-8");
+	}
+
+	private String[] postSeat(Endpoint endpoint, String parameters) throws IOException {
+		String[] lines = post(endpoint, parameters).split("\n", -1);
+		assertEquals(3, lines.length);
+		return lines;
+	}
+
+	private static String code(LicenseValidationResult result) {
+		return String.valueOf(result.code);
+	}
+
+	@Test
+	public void testStartAndStop() throws IOException {
+		assertTrue(server.getPort() > 0);
+		assertEquals("localhost:" + server.getPort(), server.domain());
+		assertEquals(code(NOT_FOUND), post(Endpoint.VALIDATE, "serialKey=SERIAL-1"));
+
+		server.stop(0);
+		try {
+			connect(Endpoint.VALIDATE.path, "POST").getResponseCode();
+			fail("Expected stopped server to refuse connections");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testAssign() throws IOException {
+		assertEquals(code(INVALID), post(Endpoint.ASSIGN, "email=other%40example.com&serialKey=SERIAL-1"));
+		assertEquals(code(INVALID), post(Endpoint.ASSIGN, "email=owner%40example.com&serialKey=UNKNOWN"));
+		assertEquals(code(INCOMPLETE), post(Endpoint.ASSIGN, "email=owner%40example.com"));
+		assertEquals(code(VALID), post(Endpoint.ASSIGN, "email=owner%40example.com&serialKey=SERIAL-1"));
+		assertEquals(4L, server.getRequestCount(Endpoint.ASSIGN));
+	}
+
+	@Test
+	public void testTrial() throws IOException {
+		assertEquals(code(VALID), post(Endpoint.TRIAL, "email=trial%40example.com"));
+		assertEquals(code(RETRIAL_ATTEMPTED), post(Endpoint.TRIAL, "email=trial%40example.com"));
+		assertEquals(code(INCOMPLETE), post(Endpoint.TRIAL, ""));
+
+		server.setTrialsEnabled(false);
+		assertEquals(code(TRIALS_DISABLED), post(Endpoint.TRIAL, "email=another%40example.com"));
+	}
+
+	@Test
+	public void testValidateAndRelease() throws IOException {
+		assertEquals(code(NOT_FOUND), post(Endpoint.VALIDATE, "serialKey=SERIAL-1"));
+		assertEquals(code(VALID), post(Endpoint.ASSIGN, "email=owner%40example.com&serialKey=SERIAL-1"));
+		assertEquals(code(VALID), post(Endpoint.VALIDATE, "serialKey=SERIAL-1"));
+
+		assertEquals(code(RELEASED), post(Endpoint.RELEASE, "serialKey=SERIAL-1"));
+		assertEquals(code(RELEASED), post(Endpoint.VALIDATE, "serialKey=SERIAL-1"));
+		assertEquals(code(NOT_FOUND), post(Endpoint.RELEASE, "serialKey=UNKNOWN"));
+
+		server.setResult("SERIAL-1", DISABLED);
+		assertEquals(code(DISABLED), post(Endpoint.VALIDATE, "serialKey=SERIAL-1"));
+		server.setResult("SERIAL-1", null);
+		assertEquals(code(RELEASED), post(Endpoint.VALIDATE, "serialKey=SERIAL-1"));
+	}
+
+	@Test
+	public void testSeats() throws IOException {
+		SeatPool pool = server.addPool("pool", 1);
+
+		String[] acquired = postSeat(Endpoint.ACQUIRE_SEAT, "pool=pool&node=node-1&ttl=60000");
+		assertEquals(code(VALID), acquired[0]);
+		assertFalse(acquired[1].isEmpty());
+		assertTrue(Long.parseLong(acquired[2]) > System.currentTimeMillis());
+		assertEquals(0, pool.getAvailable());
+
+		String[] rejected = postSeat(Endpoint.ACQUIRE_SEAT, "pool=pool&node=node-2&ttl=60000");
+		assertEquals(code(NO_MORE_LICENSES), rejected[0]);
+		assertEquals("", rejected[1]);
+		assertEquals("0", rejected[2]);
+
+		String[] renewed = postSeat(Endpoint.RENEW_SEAT, "pool=pool&lease=" + acquired[1] + "&ttl=120000");
+		assertEquals(code(VALID), renewed[0]);
+		assertEquals(acquired[1], renewed[1]);
+		assertTrue(Long.parseLong(renewed[2]) >= Long.parseLong(acquired[2]));
+
+		String[] released = postSeat(Endpoint.RELEASE_SEAT, "pool=pool&lease=" + acquired[1]);
+		assertEquals(code(RELEASED), released[0]);
+		assertEquals(1, pool.getAvailable());
+
+		assertEquals(code(NOT_FOUND), postSeat(Endpoint.ACQUIRE_SEAT, "pool=unknown&node=node-1&ttl=60000")[0]);
+		assertEquals(code(INCOMPLETE), postSeat(Endpoint.ACQUIRE_SEAT, "pool=pool&node=node-1&ttl=abc")[0]);
+	}
+
+	@Test
+	public void testHeartbeat() throws IOException {
+		server.addPool("pool", 2);
+		assertEquals(code(VALID), post(Endpoint.ASSIGN, "email=owner%40example.com&serialKey=SERIAL-1"));
+		String leaseId = postSeat(Endpoint.ACQUIRE_SEAT, "pool=pool&node=node-1&ttl=60000")[1];
+
+		// encoded by the client, independently of the server
+		HeartbeatRequest request = new HeartbeatRequest()
+				.addSerialKey("SERIAL-1")
+				.addSerialKey("UNKNOWN")
+				.addLease("pool", leaseId)
+				.addLease("pool", "expired-lease")
+				.setLeaseDuration(2, TimeUnit.MINUTES);
+		ByteBuffer encoded = request.encode();
+		byte[] body = new byte[encoded.remaining()];
+		encoded.get(body);
+
+		HttpURLConnection connection = post(Endpoint.HEARTBEAT, "application/octet-stream", body);
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("application/octet-stream", connection.getContentType());
+		HeartbeatResponse response = HeartbeatResponse.decode(ByteBuffer.wrap(readFully(connection.getInputStream())), request);
+
+		assertSame(VALID, response.getResult("SERIAL-1"));
+		assertSame(NOT_FOUND, response.getResult("UNKNOWN"));
+
+		SeatLease renewed = response.getLease("pool", leaseId);
+		assertSame(VALID, renewed.result());
+		assertTrue(renewed.expiration() > System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+		assertFalse(response.getLease("pool", "expired-lease").isValid());
+		assertEquals(1L, server.getRequestCount(Endpoint.HEARTBEAT));
+	}
+
+	@Test
+	public void testMalformedHeartbeatIsRejected() throws IOException {
+		assertEquals(400, post(Endpoint.HEARTBEAT, "application/octet-stream", new byte[]{1, 2, 3}).getResponseCode());
+	}
+
+	@Test
+	public void testRejectsMethodsOtherThanPost() throws IOException {
+		assertEquals(405, connect(Endpoint.VALIDATE.path + "?serialKey=SERIAL-1", "GET").getResponseCode());
+	}
+
+	@Test
+	public void testFailureRate() throws IOException {
+		server.setFailureRate(1.0);
+		assertEquals(503, post(Endpoint.VALIDATE, "application/x-www-form-urlencoded", "serialKey=SERIAL-1".getBytes("UTF-8")).getResponseCode());
+		server.setFailureRate(0.0);
+		assertEquals(code(NOT_FOUND), post(Endpoint.VALIDATE, "serialKey=SERIAL-1"));
+		assertEquals(2L, server.getRequestCount(Endpoint.VALIDATE));
+	}
+}